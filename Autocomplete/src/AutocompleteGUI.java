@@ -43,15 +43,10 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.LinkedList;
-import java.util.Locale;
-import java.util.Queue;
-import java.util.Scanner;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -74,9 +69,6 @@ public class AutocompleteGUI extends JFrame {
 	private static int DEF_HEIGHT = 400;
 	private static String searchURL = "https://www.google.com/search?q=";
 
-	public static final String CHARSET = "UTF-8";
-	public static final Locale LOCALE = Locale.US;
-
 	// display top k results
 	private final int k;
 	private final String autocompletorClassName;
@@ -138,6 +130,7 @@ public class AutocompleteGUI extends JFrame {
 	private class AutocompletePanel extends JPanel {
 		private final JTextField searchText;
 		private Autocompletor auto;
+		private SuggestionFetcher fetcher;
 		private String[] results = new String[k];
 		private JList<String> suggestions;
 
@@ -150,33 +143,42 @@ public class AutocompleteGUI extends JFrame {
 			super();
 
 			// read in the data
-			Scanner in;
 			try {
-				in = new Scanner(new File(filename), CHARSET);
-				in.useLocale(LOCALE);
-				int N = Integer.parseInt(in.nextLine());
-				String[] terms = new String[N];
-				double[] weights = new double[N];
-				for (int i = 0; i < N; i++) {
-					String line = in.nextLine();
-					int tab = line.indexOf('\t');
-					weights[i] = Double.parseDouble(line.substring(0, tab).trim());
-					terms[i] = line.substring(tab + 1);
+				if (filename.endsWith(MappedAutocomplete.SUFFIX)) {
+					// prebuilt index, nothing to parse; it matches exactly, with
+					// case and accents, see MappedAutocomplete
+					auto = new MappedAutocomplete(new File(filename));
+				} else {
+					TermLoader data = TermLoader.load(new File(filename));
+					String[] terms = data.terms();
+					double[] weights = data.weights();
+					// create the autocomplete object, matching without regard to
+					// case or accents
+					Constructor<?> constructor = Class.forName(autocompletorClassName)
+							.getDeclaredConstructor(String[].class, double[].class);
+					auto = new NormalizedAutocompletor(terms, weights, TermNormalizer.FOLD, (t, w) -> {
+						try {
+							return (Autocompletor) constructor.newInstance(t, w);
+						} catch (ReflectiveOperationException e) {
+							throw new IllegalStateException(e);
+						}
+					});
 				}
-				// create the autocomplete object
-				auto = (Autocompletor) Class.forName(autocompletorClassName)
-						.getDeclaredConstructor(String[].class, double[].class).newInstance(terms, weights);
 
-			} catch (InstantiationException | IllegalAccessException | ClassNotFoundException | IllegalArgumentException
-					| InvocationTargetException | NoSuchMethodException | SecurityException e1) {
+			} catch (ClassNotFoundException | IllegalArgumentException | IllegalStateException | NoSuchMethodException
+					| SecurityException e1) {
 				e1.printStackTrace();
 				System.exit(1);
-			} catch (FileNotFoundException e2) {
+			} catch (IOException e2) {
 				System.out.println("Cannot read file " + filename);
 				System.exit(1);
 
 			}
 
+			// queries run off the event dispatch thread, and typing narrows the
+			// previous search instead of starting over
+			fetcher = new SuggestionFetcher(auto, k, this::showSuggestions);
+
 			GroupLayout layout = new GroupLayout(this);
 			this.setLayout(layout);
 			searchText = new JTextField(DEF_COLUMNS);
@@ -322,8 +324,9 @@ public class AutocompleteGUI extends JFrame {
 		}
 
 		/**
-		 * Makes a call to the implementation of Autocomplete to get suggestions
-		 * for the currently entered text.
+		 * Asks the implementation of Autocomplete for suggestions for the
+		 * currently entered text. The query runs in the background and
+		 * showSuggestions displays its results, unless the text changes first.
 		 * 
 		 * @param text
 		 *            string to search for
@@ -331,38 +334,43 @@ public class AutocompleteGUI extends JFrame {
 		public void getSuggestions(String text) {
 			text = text.trim();
 			if (text.equals("")) {
+				fetcher.cancel();
 				suggestions.clearSelection();
 				suggestions.setVisible(false);
 			} else {
-				int textLen = text.length();
-				Queue<String> resultQ = new LinkedList<String>();
-				Queue<Double> ds = new LinkedList<Double>();
-				for (String term : auto.topMatches(text.toLowerCase(), k)) {
-					resultQ.add(term);
-					ds.add(auto.weightOf(term));
-				}
-				if (!resultQ.isEmpty()) {
-					results = new String[resultQ.size()];
-					for (int i = 0; i < results.length; i++) {
-						results[i] = resultQ.remove();
-						/*
-						 * Modified to include the weights of each term and a
-						 * delimiter "|" to ensure that the search does not
-						 * include the weight.
-						 */
-						results[i] = "<html>" + results[i].substring(0, textLen) + "<b>" + results[i].substring(textLen)
-								+ "</b>" + "|<span style=\"color:#C0C0C0;\">" + String.format("%.0f",ds.remove()) + "</span></html>";
-					}
-					suggestions.setListData(results);
-					suggestions.setVisible(true);
-					// suggestions.setSelectedIndex(0); // Pressing enter
-					// automatically selects the first one
-					// if nothing has been
-				} else {
-					// No suggestions
-					suggestions.setVisible(false);
-					suggestions.clearSelection();
+				fetcher.request(text);
+			}
+		}
+
+		/**
+		 * Displays the suggestions for the entered text. Called on the event
+		 * dispatch thread.
+		 */
+		private void showSuggestions(SuggestionFetcher.Suggestions found) {
+			if (found.size() > 0) {
+				int textLen = found.getText().length();
+				results = new String[found.size()];
+				for (int i = 0; i < results.length; i++) {
+					results[i] = found.term(i);
+					/*
+					 * Modified to include the weights of each term and a
+					 * delimiter "|" to ensure that the search does not
+					 * include the weight.
+					 */
+					// a match can be shorter than the text, e.g. with accents typed as separate marks
+					int bold = Math.min(textLen, results[i].length());
+					results[i] = "<html>" + results[i].substring(0, bold) + "<b>" + results[i].substring(bold)
+							+ "</b>" + "|<span style=\"color:#C0C0C0;\">" + String.format("%.0f", found.weight(i)) + "</span></html>";
 				}
+				suggestions.setListData(results);
+				suggestions.setVisible(true);
+				// suggestions.setSelectedIndex(0); // Pressing enter
+				// automatically selects the first one
+				// if nothing has been
+			} else {
+				// No suggestions
+				suggestions.setVisible(false);
+				suggestions.clearSelection();
 			}
 		}
 
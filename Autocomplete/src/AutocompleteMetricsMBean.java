@@ -0,0 +1,40 @@
+/**
+ * JMX management interface for InstrumentedAutocompletor. Latencies are in
+ * microseconds over all queries since the last reset; "examined" counts the
+ * trie nodes, index entries or terms a topMatches query looked at. Index
+ * figures are -1 if the wrapped Autocompletor does not implement IndexStats.
+ */
+public interface AutocompleteMetricsMBean {
+
+	public String getImplementation();
+
+	public long getQueries();
+
+	public double getMeanMicros();
+
+	public double getP50Micros();
+
+	public double getP99Micros();
+
+	public double getP999Micros();
+
+	public double getMaxMicros();
+
+	public double getMeanExamined();
+
+	public long getP99Examined();
+
+	public long getMaxExamined();
+
+	public double getMeanResults();
+
+	public long getEmptyResults();
+
+	public long getIncompleteResults();
+
+	public long getNodeCount();
+
+	public long getEstimatedBytes();
+
+	public void reset();
+}
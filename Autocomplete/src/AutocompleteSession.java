@@ -0,0 +1,100 @@
+import java.util.LinkedList;
+
+/**
+ * A prefix that is typed one character at a time, as in a search box. Get one
+ * from Autocompletor.startSession(). Implementations keep the trie node or
+ * index range found for the current prefix, so append only has to narrow it
+ * by one character and backspace returns to the state before the last append,
+ * instead of every keystroke searching from scratch.
+ *
+ * This class is the fallback for Autocompletors without such state: it only
+ * remembers the text and asks the Autocompletor again for each query.
+ */
+public class AutocompleteSession {
+
+	protected final Autocompletor myAutocompletor;
+	protected final StringBuilder myPrefix = new StringBuilder();
+
+	public AutocompleteSession(Autocompletor autocompletor) {
+		myAutocompletor = autocompletor;
+	}
+
+	/**
+	 * Add ch to the end of the prefix.
+	 */
+	public void append(char ch) {
+		myPrefix.append(ch);
+	}
+
+	/**
+	 * Remove the last character of the prefix, if there is one.
+	 */
+	public void backspace() {
+		if (myPrefix.length() > 0) {
+			myPrefix.setLength(myPrefix.length() - 1);
+		}
+	}
+
+	/**
+	 * Change the prefix to text, keeping the work done for the part text shares
+	 * with the current prefix. Typing a character, deleting one, or pasting
+	 * over the end all reuse everything before the change.
+	 */
+	public void setText(String text) {
+		int common = 0;
+		int n = Math.min(text.length(), myPrefix.length());
+		while (common < n && text.charAt(common) == myPrefix.charAt(common)) {
+			common++;
+		}
+		while (myPrefix.length() > common) {
+			backspace();
+		}
+		for (int i = common; i < text.length(); i++) {
+			append(text.charAt(i));
+		}
+	}
+
+	public String getPrefix() {
+		return myPrefix.toString();
+	}
+
+	/**
+	 * The top k matches of the current prefix with their weights, in
+	 * descending order of weight.
+	 */
+	public Iterable<Term> topMatchesWithWeights(int k) {
+		return myAutocompletor.topMatchesWithWeights(getPrefix(), k);
+	}
+
+	/**
+	 * Same as Autocompletor.topMatches(getPrefix(), results).
+	 */
+	public int topMatches(MatchBuffer results) {
+		results.clear();
+		for (Term t : topMatchesWithWeights(results.capacity())) {
+			results.add(t.getWord(), t.getWeight());
+		}
+		return results.size();
+	}
+
+	/**
+	 * Same as Autocompletor.topMatches(getPrefix(), k).
+	 */
+	public Iterable<String> topMatches(int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as Autocompletor.topMatch(getPrefix()).
+	 */
+	public String topMatch() {
+		for (Term t : topMatchesWithWeights(1)) {
+			return t.getWord();
+		}
+		return "";
+	}
+}
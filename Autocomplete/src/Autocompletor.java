@@ -1,3 +1,5 @@
+import java.util.LinkedList;
+
 /**
  * An Autocompletor supports returning either the top k best matches, or the
  * single top match, given a String prefix.
@@ -26,4 +28,48 @@ public interface Autocompletor {
 	 */
 	public double weightOf(String term);
 
+	/**
+	 * Same as topMatches, but each match comes with its weight. Implementations
+	 * should override this to avoid the weightOf lookup per match done here.
+	 */
+	public default Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		LinkedList<Term> ret = new LinkedList<Term>();
+		for (String word : topMatches(prefix, k)) {
+			ret.add(new Term(word, weightOf(word)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Fill results with the top results.capacity() matching terms and their
+	 * weights in descending order of weight, replacing its contents, and
+	 * return how many there are. Implementations should override this so it
+	 * allocates nothing, and may stop early if the search exceeds the
+	 * buffer's budget; this version copies from topMatchesWithWeights and
+	 * always completes.
+	 */
+	public default int topMatches(String prefix, MatchBuffer results) {
+		results.clear();
+		for (Term t : topMatchesWithWeights(prefix, results.capacity())) {
+			results.add(t.getWord(), t.getWeight());
+		}
+		return results.size();
+	}
+
+	/**
+	 * Start a session for a prefix typed one character at a time, beginning
+	 * with the empty prefix.
+	 */
+	public default AutocompleteSession startSession() {
+		return new AutocompleteSession(this);
+	}
+
+	/**
+	 * Answer topMatchesWithWeights(prefixes[i], k) for every i, in parallel.
+	 * Implementations used here must be safe to query from several threads.
+	 */
+	public default BatchResults topMatchesBatch(String[] prefixes, int k) {
+		return BatchResults.query(this, prefixes, k);
+	}
+
 }
@@ -1,20 +1,17 @@
 import java.io.File;
 import java.io.IOException;
-import java.util.Locale;
 import java.util.Random;
-import java.util.Scanner;
 
 import javax.swing.JFileChooser;
 
 public class AutocompletorBenchmark {
 
 	public static Random ourRandom = new Random(1234);
-	public static final String CHARSET = "UTF-8";
-	public static final Locale LOCALE = Locale.US;
+	// matches the way AutocompleteGUI does: without regard to case or accents
 	public static Autocompletor getInstance(String[] words, double[] weights) {
-		//return new BruteAutocomplete(words, weights);
-		//return new BinarySearchAutocomplete(words,weights);
-		return new TrieAutocomplete(words,weights);
+		//return new NormalizedAutocompletor(words, weights, TermNormalizer.FOLD, BruteAutocomplete::new);
+		//return new NormalizedAutocompletor(words, weights, TermNormalizer.FOLD, BinarySearchAutocomplete::new);
+		return new NormalizedAutocompletor(words, weights, TermNormalizer.FOLD, TrieAutocomplete::new);
 	}
 	// chooser allows users to select a file by navigating through
 	// directories
@@ -24,13 +21,12 @@ public class AutocompletorBenchmark {
 	/**
 	 * Brings up chooser for user to select a file
 	 * 
-	 * @return Scanner for user selected file, null if file not found
+	 * @return user selected file, null if no readable file was chosen
 	 */
-	public static Scanner getScanner() {
+	public static File getFile() {
 		int retval = ourChooser.showOpenDialog(null);
 		if (retval == JFileChooser.APPROVE_OPTION) {
 			File f = ourChooser.getSelectedFile();
-			Scanner s;
 			try {
 				if (f.canRead()) {
 					System.out.println("Opening - " +  f.getCanonicalPath() + ".");
@@ -38,29 +34,19 @@ public class AutocompletorBenchmark {
 					System.out.println("Could not open selected file.");
 					return null;
 				}
-				s = new Scanner(f, CHARSET);
-				s.useLocale(LOCALE);
-				
 			} catch (IOException e) {
 				return null;
 			}
-			return s;
+			return f;
 		}
 		return null;
 	}
 
-	public static long countNodes(Node root) {
-		long result = 1;
-		for (Node child : root.children.values())
-			result += countNodes(child);
-		return result;
-	}
-
 		public static void main(String[] args) {
 		double start =  System.nanoTime();
-		Scanner in = null;
+		File in = null;
 		do {
-			in = getScanner();
+			in = getFile();
 			
 		} while (in == null);
 		
@@ -68,27 +54,25 @@ public class AutocompletorBenchmark {
 		String[] terms = null;
 		double[] weights = null;
 		try {
-			N = Integer.parseInt(in.nextLine());
-			terms = new String[N];
-			weights = new double[N];
-
-			for (int i = 0; i < N; i++) {
-				String line = in.nextLine();
-				int tab = line.indexOf('\t');
-				weights[i] = Double.parseDouble(line.substring(0, tab).trim());
-				terms[i] = line.substring(tab + 1).toLowerCase();
-			}
+			TermLoader data = TermLoader.load(in);
+			terms = data.terms();
+			weights = data.weights();
+			N = terms.length;
 		} catch (Exception e) { //could be any parsing related exception
 			System.err.println("File is malformatted");
 			System.exit(0);
 		}
 		long startTime = System.nanoTime();
 		Autocompletor auto = getInstance(terms, weights);
-		System.out.println("Benchmarking " + auto.getClass().getName() + "...");
+		Autocompletor index = auto instanceof NormalizedAutocompletor ? ((NormalizedAutocompletor) auto).getAutocompletor()
+				: auto;
+		System.out.println("Benchmarking " + index.getClass().getName() + "...");
 		System.out.println("Found " + N + " words");
 		System.out.println("Time to initialize - " + (System.nanoTime() - startTime) / 1E9);
-		if (auto instanceof TrieAutocomplete)
-			System.out.println("Created " + countNodes(((TrieAutocomplete) auto).myRoot) + " nodes");
+		if (index instanceof TrieAutocomplete)
+			System.out.println("Created " + ((TrieAutocomplete) index).nodeCount() + " nodes");
+		if (index instanceof RadixAutocomplete)
+			System.out.println("Created " + ((RadixAutocomplete) index).countNodes() + " nodes");
 		String randomWord = "";
 		while (randomWord.length() <= 2)
 			randomWord = terms[ourRandom.nextInt(terms.length)];
@@ -98,10 +82,8 @@ public class AutocompletorBenchmark {
 		int trial;
 		for (String query : queries) {
 			startTime = System.nanoTime();
-			for (trial = 0; trial < 1000; trial++) {
+			for (trial = 0; trial < 1000 && System.nanoTime() - startTime <= 5E9; trial++) {
 				auto.topMatch(query);
-				if (System.nanoTime() - startTime > 5E9)
-					break;
 			}
 			System.out.println(
 					"Time for topMatch(\"" + query + "\") - " + (System.nanoTime() - startTime) / (1E9 * trial));
@@ -110,13 +92,11 @@ public class AutocompletorBenchmark {
 		for (String query : queries) {
 			for (int k = 1; k <= 256; k *= 2) {
 				startTime = System.nanoTime();
-				for (trial = 0; trial < NTRIALS; trial++) {
+				for (trial = 0; trial < NTRIALS && System.nanoTime() - startTime <= 5E9; trial++) {
 					auto.topMatches(query, k);
-					if (System.nanoTime() - startTime > 5E9)
-						break;
 				}
 				System.out.println("Time for topKMatches(\"" + query + "\", " + k + ")" + " - " + " "
-						+ (System.nanoTime() - startTime) / (1E9 * NTRIALS));
+						+ (System.nanoTime() - startTime) / (1E9 * trial));
 			}
 		}
 		double end =  System.nanoTime();
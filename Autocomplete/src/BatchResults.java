@@ -0,0 +1,188 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers to a batch of prefix queries, from Autocompletor.topMatchesBatch.
+ * All matches are stored end to end in one array of terms and one of
+ * weights, with an offset per distinct prefix, so a batch of millions of
+ * queries holds a few arrays instead of a list and Term objects per query.
+ *
+ * <pre>
+ * BatchResults results = auto.topMatchesBatch(prefixes, 10);
+ * for (int j = 0; j < results.count(i); j++)
+ *     System.out.println(results.term(i, j) + " " + results.weight(i, j));
+ * </pre>
+ */
+public class BatchResults {
+
+	/**
+	 * Number of consecutive sorted prefixes below which a range is answered
+	 * by one task instead of being split further.
+	 */
+	private static final int MIN_TASK = 64;
+
+	/**
+	 * Capacity each task's MatchBuffer starts with; it doubles, up to k, when
+	 * a query fills it.
+	 */
+	private static final int MIN_BUFFER = 16;
+
+	private final int[] myQueryIndex; // query i's results are those of distinct prefix myQueryIndex[i]
+	private final int[] myOffsets; // distinct prefix p has matches [myOffsets[p], myOffsets[p + 1])
+	private final String[] myTerms;
+	private final double[] myWeights;
+
+	private BatchResults(int[] queryIndex, int[] offsets, String[] terms, double[] weights) {
+		myQueryIndex = queryIndex;
+		myOffsets = offsets;
+		myTerms = terms;
+		myWeights = weights;
+	}
+
+	/**
+	 * Number of queries in the batch.
+	 */
+	public int size() {
+		return myQueryIndex.length;
+	}
+
+	/**
+	 * Number of matches for query i, at most k.
+	 */
+	public int count(int i) {
+		int p = myQueryIndex[i];
+		return myOffsets[p + 1] - myOffsets[p];
+	}
+
+	/**
+	 * The j-th best match of query i, 0 <= j < count(i).
+	 */
+	public String term(int i, int j) {
+		return myTerms[position(i, j)];
+	}
+
+	/**
+	 * Weight of term(i, j).
+	 */
+	public double weight(int i, int j) {
+		return myWeights[position(i, j)];
+	}
+
+	private int position(int i, int j) {
+		if (j < 0 || j >= count(i)) {
+			throw new IndexOutOfBoundsException("match " + j + " of query " + i + " with " + count(i) + " matches");
+		}
+		return myOffsets[myQueryIndex[i]] + j;
+	}
+
+	/**
+	 * Answer topMatchesWithWeights(prefixes[i], k) for every i. The distinct
+	 * prefixes are sorted and split into ranges answered in parallel on the
+	 * common fork-join pool. Each range is walked with one AutocompleteSession,
+	 * so consecutive prefixes reuse the trie node or index range of the prefix
+	 * they share. auto must support concurrent queries.
+	 *
+	 * @throws NullPointerException
+	 *             if prefixes or any prefix is null
+	 */
+	public static BatchResults query(Autocompletor auto, String[] prefixes, int k) {
+		String[] distinct = prefixes.clone();
+		Arrays.parallelSort(distinct);
+		int unique = 0;
+		for (int i = 0; i < distinct.length; i++) {
+			if (unique == 0 || !distinct[i].equals(distinct[unique - 1])) {
+				distinct[unique++] = distinct[i];
+			}
+		}
+		distinct = Arrays.copyOf(distinct, unique);
+		int[] queryIndex = new int[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			queryIndex[i] = Arrays.binarySearch(distinct, prefixes[i]);
+		}
+
+		// each leaf task collects its own matches; then they are laid end to end
+		int[] counts = new int[unique];
+		QueryTask root = new QueryTask(auto, distinct, 0, unique, k, counts);
+		if (k > 0 && unique > 0) {
+			ForkJoinPool.commonPool().invoke(root);
+		}
+		int[] offsets = new int[unique + 1];
+		for (int p = 0; p < unique; p++) {
+			offsets[p + 1] = offsets[p] + counts[p];
+		}
+		String[] terms = new String[offsets[unique]];
+		double[] weights = new double[offsets[unique]];
+		root.copyTo(terms, weights, offsets);
+		return new BatchResults(queryIndex, offsets, terms, weights);
+	}
+
+	@SuppressWarnings("serial")
+	private static class QueryTask extends RecursiveAction {
+		private final Autocompletor myAuto;
+		private final String[] myPrefixes;
+		private final int myLo, myHi, myK;
+		private final int[] myCounts;
+
+		// children, if the range was split
+		private QueryTask myLeft, myRight;
+
+		// otherwise the matches of prefixes myLo to myHi, end to end
+		private String[] myTerms = new String[0];
+		private double[] myWeights = new double[0];
+		private int mySize;
+
+		QueryTask(Autocompletor auto, String[] prefixes, int lo, int hi, int k, int[] counts) {
+			myAuto = auto;
+			myPrefixes = prefixes;
+			myLo = lo;
+			myHi = hi;
+			myK = k;
+			myCounts = counts;
+		}
+
+		@Override
+		protected void compute() {
+			if (myHi - myLo > MIN_TASK) {
+				int mid = (myLo + myHi) >>> 1;
+				myLeft = new QueryTask(myAuto, myPrefixes, myLo, mid, myK, myCounts);
+				myRight = new QueryTask(myAuto, myPrefixes, mid, myHi, myK, myCounts);
+				invokeAll(myLeft, myRight);
+				return;
+			}
+			AutocompleteSession session = myAuto.startSession();
+			// k can be far more than the index holds, so the buffer starts
+			// small and grows only while queries fill it
+			MatchBuffer results = new MatchBuffer(Math.min(myK, MIN_BUFFER));
+			for (int p = myLo; p < myHi; p++) {
+				session.setText(myPrefixes[p]);
+				int count = session.topMatches(results);
+				while (count == results.capacity() && count < myK) {
+					results = new MatchBuffer((int) Math.min(myK, 2L * count));
+					count = session.topMatches(results);
+				}
+				if (mySize + count > myTerms.length) {
+					int length = Math.max(mySize + count, 2 * myTerms.length);
+					myTerms = Arrays.copyOf(myTerms, length);
+					myWeights = Arrays.copyOf(myWeights, length);
+				}
+				for (int j = 0; j < count; j++) {
+					myTerms[mySize] = results.term(j);
+					myWeights[mySize++] = results.weight(j);
+				}
+				myCounts[p] = count;
+			}
+		}
+
+		// copy the matches of this range to their place in terms and weights
+		void copyTo(String[] terms, double[] weights, int[] offsets) {
+			if (myLeft != null) {
+				myLeft.copyTo(terms, weights, offsets);
+				myRight.copyTo(terms, weights, offsets);
+			} else {
+				System.arraycopy(myTerms, 0, terms, offsets[myLo], mySize);
+				System.arraycopy(myWeights, 0, weights, offsets[myLo], mySize);
+			}
+		}
+	}
+}
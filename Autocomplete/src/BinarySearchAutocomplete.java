@@ -2,7 +2,6 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
@@ -13,10 +12,15 @@ import java.util.Set;
  * @author Austin Lu, adapted from Kevin Wayne
  * @author Jeff Forbes
  */
-public class BinarySearchAutocomplete implements Autocompletor {
+public class BinarySearchAutocomplete implements Autocompletor, IndexStats {
 
 	Term[] myTerms;
 
+	/**
+	 * Range-maximum index over the weights of myTerms, in myTerms order.
+	 */
+	RangeMaxIndex myMaxIndex;
+
 	/**
 	 * Given arrays of words and weights, initialize myTerms to a corresponding
 	 * array of Terms sorted lexicographically.
@@ -58,6 +62,11 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		}
 
 		Arrays.sort(myTerms);
+		double[] sortedWeights = new double[myTerms.length];
+		for (int i = 0; i < myTerms.length; i++) {
+			sortedWeights[i] = myTerms[i].getWeight();
+		}
+		myMaxIndex = new RangeMaxIndex(sortedWeights);
 	}
 
 	/**
@@ -88,7 +97,7 @@ public class BinarySearchAutocomplete implements Autocompletor {
 			if (comparator.compare(key,a[mid]) <= 0) { //move high bound if key in lower half (inclusive)
 				high = mid;
 			}
-			else if (comparator.compare(key,a[mid]) > 0) { //move low bound if key in upper half (exclusive)
+			else { //move low bound if key in upper half (exclusive)
 				low = mid;
 			}
 		}
@@ -124,7 +133,7 @@ public class BinarySearchAutocomplete implements Autocompletor {
 			if (comparator.compare(key,a[mid]) < 0) { //move high bound if key in lower half (exclusive)
 				high = mid;
 			}
-			else if (comparator.compare(key,a[mid]) >= 0) { //move low bound if key in upper half (inclusive)
+			else { //move low bound if key in upper half (inclusive)
 				low = mid;
 			}
 		}
@@ -135,6 +144,73 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		return -1; //no term
 	}
 
+	/**
+	 * Compare prefix with the first prefix.length() characters of word (all of
+	 * word if it is shorter), the same order as Term.PrefixOrder but without
+	 * creating Terms or substrings.
+	 * 
+	 * @return negative, zero or positive as prefix sorts before, equal to, or
+	 *         after the start of word
+	 */
+	static int comparePrefix(String prefix, String word) {
+		int n = prefix.length();
+		int wLen = word.length();
+		for (int i = 0; i < n; i++) {
+			if (i == wLen) { //word is a proper prefix of prefix
+				return 1;
+			}
+			int diff = prefix.charAt(i) - word.charAt(i);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Index of the first Term in myTerms starting with prefix, or -1. Same as
+	 * firstIndexOf(myTerms, new Term(prefix, 0), new Term.PrefixOrder(r)) but
+	 * allocates nothing.
+	 */
+	int firstIndexOf(String prefix) {
+		int low = -1;
+		int high = myTerms.length; //invariant: myTerms[low] < prefix <= myTerms[high]
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(prefix, myTerms[mid].getWord()) <= 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		if (high < myTerms.length && comparePrefix(prefix, myTerms[high].getWord()) == 0) {
+			return high;
+		}
+		return -1;
+	}
+
+	/**
+	 * Index of the last Term in myTerms starting with prefix, or -1. Same as
+	 * lastIndexOf(myTerms, new Term(prefix, 0), new Term.PrefixOrder(r)) but
+	 * allocates nothing.
+	 */
+	int lastIndexOf(String prefix) {
+		int low = -1;
+		int high = myTerms.length; //invariant: myTerms[low] <= prefix < myTerms[high]
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(prefix, myTerms[mid].getWord()) < 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		if (low >= 0 && comparePrefix(prefix, myTerms[low].getWord()) == 0) {
+			return low;
+		}
+		return -1;
+	}
+
 	/**
 	 * Required by the Autocompletor interface. Returns an array containing the k
 	 * words in myTerms with the largest weight which match the given prefix, in
@@ -156,35 +232,175 @@ public class BinarySearchAutocomplete implements Autocompletor {
 	 *             NullPointerException if prefix is null
 	 */
 	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as topMatches, but returns the matching Terms themselves so no
+	 * weightOf lookup is needed.
+	 * 
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
 		if (k <= 0) {
-			return new LinkedList<String>();
+			return new LinkedList<Term>();
 		}
 		if (prefix == null) {
 			throw new NullPointerException("No prefix given"); //exception if no prefix given 
 		}
-		PriorityQueue<Term> wordy = new PriorityQueue<Term>(k, new Term.WeightOrder());
-		LinkedList<String> ret = new LinkedList<String>();
-		Comparator<Term> comparator = new Term.PrefixOrder(prefix.length());
-		Term p = new Term(prefix, 0);
-		int first = firstIndexOf(myTerms, p, comparator); //index of first matching term
-		int last = lastIndexOf(myTerms, p, comparator); //index of last matching term
-		if (first < 0 || last < 0 || k <= 0) { //no matching term
+		int first = firstIndexOf(prefix); //index of first matching term
+		int last = lastIndexOf(prefix); //index of last matching term
+		return topTerms(first, last, k);
+	}
+
+	/**
+	 * Same as topMatchesWithWeights, into results; allocates nothing once
+	 * results has grown to the size of the search. Always completes: the
+	 * work is O(log n + k log k) however many terms match, so results'
+	 * budget is not needed.
+	 * 
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given"); //exception if no prefix given
+		}
+		return topTerms(firstIndexOf(prefix), lastIndexOf(prefix), results);
+	}
+
+	/**
+	 * Same as topTerms(first, last, results.capacity()), into results.
+	 */
+	private int topTerms(int first, int last, MatchBuffer results) {
+		results.clear();
+		int k = results.capacity();
+		if (first < 0 || last < 0 || k == 0) { //no matching term
+			return 0;
+		}
+		QueryWork.add(last - first + 1); //size of the matching range
+		int[] work = results.ints(RangeMaxIndex.workSize(k));
+		int n = myMaxIndex.topIndices(first, last, k, work);
+		for (int i = 0; i < n; i++) {
+			results.add(myTerms[work[i]].getWord(), myTerms[work[i]].getWeight());
+		}
+		return n;
+	}
+
+	/**
+	 * The k heaviest Terms in myTerms[first, last], heaviest first. Empty if
+	 * first is negative.
+	 */
+	private LinkedList<Term> topTerms(int first, int last, int k) {
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (first < 0 || last < 0) { //no matching term
 			return ret;
 		}
-		for (int i = first; i <= last; i++) { //all matching terms from first to last 
-			if (wordy.size() < k) { //pQueue not yet full
-				wordy.add(myTerms[i]); //add term
+		QueryWork.add(last - first + 1); //size of the matching range
+		for (int i : myMaxIndex.topIndices(first, last, k)) { //k heaviest of the matching range, heaviest first
+			ret.add(myTerms[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Within myTerms[lo, hi], whose words all share their first pos characters,
+	 * find the first (or, if last is true, the last) index whose word has ch at
+	 * position pos. Only that one character is compared at each step.
+	 * 
+	 * @return the index, or -1 if no word in the range has ch at pos
+	 */
+	private int narrow(int lo, int hi, int pos, char ch, boolean last) {
+		int low = lo - 1;
+		int high = hi + 1;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			String word = myTerms[mid].getWord();
+			int cmp = word.length() <= pos ? 1 : ch - word.charAt(pos); //shorter words sort first
+			if (cmp < 0 || (cmp == 0 && !last)) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		int found = last ? low : high;
+		if (found < lo || found > hi) {
+			return -1;
+		}
+		String word = myTerms[found].getWord();
+		return word.length() > pos && word.charAt(pos) == ch ? found : -1;
+	}
+
+	/**
+	 * Session that keeps the [first, last] range of every prefix of the
+	 * current text, so append searches only the previous range and compares
+	 * only the new character, and backspace is a pop.
+	 */
+	private class RangeSession extends AutocompleteSession {
+		// range of the first i characters is [myFirst[i], myLast[i]], -1 if empty
+		private int[] myFirst = new int[16];
+		private int[] myLast = new int[16];
+
+		RangeSession() {
+			super(BinarySearchAutocomplete.this);
+			myFirst[0] = myTerms.length == 0 ? -1 : 0;
+			myLast[0] = myTerms.length - 1;
+		}
+
+		@Override
+		public void append(char ch) {
+			int depth = myPrefix.length();
+			super.append(ch);
+			if (depth + 1 == myFirst.length) {
+				myFirst = Arrays.copyOf(myFirst, 2 * myFirst.length);
+				myLast = Arrays.copyOf(myLast, 2 * myLast.length);
 			}
-			else if (wordy.peek().getWeight() < myTerms[i].getWeight()){ //pQueue is full, must test if new weight is greater than current lowest
-				wordy.remove(); //remove lowest
-				wordy.add(myTerms[i]); //add term
+			int first = -1, last = -1;
+			if (myFirst[depth] >= 0) {
+				first = narrow(myFirst[depth], myLast[depth], depth, ch, false);
+				if (first >= 0) {
+					last = narrow(first, myLast[depth], depth, ch, true);
+				}
 			}
+			myFirst[depth + 1] = first;
+			myLast[depth + 1] = last;
 		}
-		int num = Math.min(wordy.size(), k); 
-		for (int j = 0; j < num; j++) { //for either as many things in wordy or size k, whichever is smaller
-			ret.addFirst(wordy.remove().getWord()); //add words of terms to return list
+
+		@Override
+		public Iterable<Term> topMatchesWithWeights(int k) {
+			if (k <= 0) {
+				return new LinkedList<Term>();
 			}
-		return ret;
+			int depth = myPrefix.length();
+			return topTerms(myFirst[depth], myLast[depth], k);
+		}
+
+		@Override
+		public int topMatches(MatchBuffer results) {
+			int depth = myPrefix.length();
+			return topTerms(myFirst[depth], myLast[depth], results);
+		}
+
+		@Override
+		public String topMatch() {
+			int depth = myPrefix.length();
+			if (myFirst[depth] < 0) {
+				return "";
+			}
+			return myTerms[myMaxIndex.argMax(myFirst[depth], myLast[depth])].getWord();
+		}
+	}
+
+	@Override
+	public AutocompleteSession startSession() {
+		return new RangeSession();
 	}
 
 	/**
@@ -204,23 +420,12 @@ public class BinarySearchAutocomplete implements Autocompletor {
 		if (prefix == null) {
 			throw new NullPointerException("No prefix given"); //exception if no prefix given
 		}
-		Term p = new Term(prefix, 0);
-		Comparator<Term> comparator = new Term.PrefixOrder(prefix.length());
-		int first = firstIndexOf(myTerms, p, comparator); //index of first matching term
-		int last = lastIndexOf(myTerms, p, comparator); //index of last matching term
+		int first = firstIndexOf(prefix); //index of first matching term
+		int last = lastIndexOf(prefix); //index of last matching term
 		if (first < 0 || last < 0) { //no term
 			return "";
 		}
-		double atLeast = 0.0;
-		String greatWord = "";
-		for (int i = first; i <= last; i++) { //loop from first matching term to last
-			double weight = myTerms[i].getWeight(); //weight of given term
-			if (weight > atLeast) { //new greatest if bigger than current weight
-				atLeast = weight; //replace weight
-				greatWord = myTerms[i].getWord(); //replace word
-			}
-		}
-		return greatWord;
+		return myTerms[myMaxIndex.argMax(first, last)].getWord(); //heaviest of the matching range
 	}
 
 	/**
@@ -228,12 +433,27 @@ public class BinarySearchAutocomplete implements Autocompletor {
 	 * 0.0
 	 */
 	public double weightOf(String term) {
-		Term t = new Term(term, 0); //create term from given string 
-		Comparator<Term> comp = new Term.PrefixOrder(term.length());
-		int num = firstIndexOf(myTerms, t, comp); //index of first matching term
-		if (num < 0) { //index means no term
+		int num = firstIndexOf(term); //index of first term starting with term, i.e. term itself if present
+		if (num < 0 || myTerms[num].getWord().length() != term.length()) { //no such term, only longer ones
 			return 0.0;
 		}
 		return myTerms[num].getWeight(); //weight of matching term
 	}
+
+	/**
+	 * Number of terms.
+	 */
+	public long nodeCount() {
+		return myTerms.length;
+	}
+
+	public long estimatedBytes() {
+		long ret = IndexStats.arrayBytes(myTerms.length, 4);
+		for (Term t : myTerms) {
+			ret += IndexStats.objectBytes(12) + IndexStats.stringBytes(t.getWord()); // reference and double
+		}
+		// the weights and tree of myMaxIndex
+		ret += IndexStats.arrayBytes(myTerms.length, 8) + IndexStats.arrayBytes(RangeMaxIndex.treeSize(myTerms.length), 4);
+		return ret;
+	}
 }
@@ -1,18 +1,38 @@
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * Implements Autocompletor by scanning through the entire array of terms for
  * every topKMatches or topMatch query.
+ *
+ * The terms are packed end to end in one char array, with their start
+ * offsets and weights in parallel arrays, so a scan streams through three
+ * flat arrays instead of following a Term and a String per term, and
+ * compares a prefix with one vectorized Arrays.equals. Large scans are split
+ * into chunks run on the common fork-join pool; each chunk keeps its own
+ * bounded heap of the k heaviest matches and the heaps are merged at the end.
  */
-public class BruteAutocomplete implements Autocompletor {
+public class BruteAutocomplete implements Autocompletor, IndexStats {
 
-	Term[] myTerms;
+	/**
+	 * Scans of fewer terms than this run on the calling thread.
+	 */
+	public static final int MIN_CHUNK = 1 << 14;
+
+	// term i is myChars[myStarts[i], myStarts[i + 1]) with weight myWeights[i]
+	private final char[] myChars;
+	private final int[] myStarts;
+	private final double[] myWeights;
 
 	/**
 	 * Create immutable instance with terms constructed from parameter
-	 * 
+	 *
 	 * @param terms
 	 *            words such that terms[k] is part of a word pair 0 <= k <
 	 *            terms.length
@@ -24,6 +44,7 @@ public class BruteAutocomplete implements Autocompletor {
 	 *             if terms.length != weights.length
 	 *             if any element of weights is negative
 	 *             if any element of terms is a duplicate
+	 *             if the terms hold more than Integer.MAX_VALUE chars
 	 */
 	public BruteAutocomplete(String[] terms, double[] weights) {
 
@@ -35,13 +56,11 @@ public class BruteAutocomplete implements Autocompletor {
 			throw new IllegalArgumentException("terms and weights are not the same length");
 		}
 
-		myTerms = new Term[terms.length];
-
 		HashSet<String> words = new HashSet<String>();
-
+		long chars = 0;
 		for (int i = 0; i < terms.length; i++) {
 			words.add(terms[i]);
-			myTerms[i] = new Term(terms[i], weights[i]);
+			chars += terms[i].length();
 			if (weights[i] < 0) {
 				throw new IllegalArgumentException("Negative weight " + weights[i]);
 			}
@@ -49,51 +68,278 @@ public class BruteAutocomplete implements Autocompletor {
 		if (words.size() != terms.length) {
 			throw new IllegalArgumentException("Duplicate input terms");
 		}
+		if (chars > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many characters to pack: " + chars);
+		}
+
+		myChars = new char[(int) chars];
+		myStarts = new int[terms.length + 1];
+		myWeights = weights.clone();
+		for (int i = 0; i < terms.length; i++) {
+			terms[i].getChars(0, terms[i].length(), myChars, myStarts[i]);
+			myStarts[i + 1] = myStarts[i] + terms[i].length();
+		}
+	}
+
+	private String word(int i) {
+		return new String(myChars, myStarts[i], myStarts[i + 1] - myStarts[i]);
 	}
 
 	public Iterable<String> topMatches(String prefix, int k) {
-		if (k < 0) {
-			throw new IllegalArgumentException("Illegal value of k:" + k);
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
 		}
+		return ret;
+	}
 
-		// maintain pq of size k
-		PriorityQueue<Term> pq = new PriorityQueue<Term>(k, new Term.WeightOrder());
-		for (Term t : myTerms) {
-			if (!t.getWord().startsWith(prefix))
-				continue;
-			if (pq.size() < k) {
-				pq.add(t);
-			} else if (pq.peek().getWeight() < t.getWeight()) {
-				pq.remove();
-				pq.add(t);
-			}
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		char[] p = prefix.toCharArray();
+		return terms(scan(k, () -> i -> hasPrefix(i, p)));
+	}
+
+	/**
+	 * The k heaviest terms accepted by filter, heaviest first. This is the
+	 * query for matches no index supports, such as a regular expression.
+	 * Each chunk of the scan asks its supplier for a filter once, so a filter
+	 * that keeps state, such as a Matcher, can be used by one thread at a
+	 * time. The CharSequence passed to a filter is a view of the packed
+	 * terms that is only valid during the call.
+	 *
+	 * @throws NullPointerException
+	 *             if filter is null
+	 * @throws IllegalArgumentException
+	 *             if k is negative
+	 */
+	public Iterable<Term> topMatchesWhere(Supplier<? extends Predicate<? super CharSequence>> filter, int k) {
+		if (filter == null) {
+			throw new NullPointerException("No filter given");
 		}
-		int numResults = Math.min(k, pq.size());
-		LinkedList<String> ret = new LinkedList<String>();
-		for (int i = 0; i < numResults; i++) {
-			ret.addFirst(pq.remove().getWord());
+		return terms(scan(k, () -> {
+			Predicate<? super CharSequence> accept = filter.get();
+			View view = new View();
+			return i -> accept.test(view.of(i));
+		}));
+	}
+
+	private LinkedList<Term> terms(Heap heap) {
+		LinkedList<Term> ret = new LinkedList<Term>();
+		while (heap.size() > 0) {
+			int i = heap.remove();
+			ret.addFirst(new Term(word(i), myWeights[i]));
 		}
 		return ret;
 	}
 
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
 	public String topMatch(String prefix) {
-		String maxTerm = "";
-		double maxWeight = -1;
-		for (Term t : myTerms) {
-			if (t.getWeight() > maxWeight && t.getWord().startsWith(prefix)) {
-				maxWeight = t.getWeight();
-				maxTerm = t.getWord();
+		char[] p = prefix.toCharArray();
+		Heap heap = scan(1, () -> i -> hasPrefix(i, p));
+		return heap.size() == 0 ? "" : word(heap.remove());
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 *
+	 * @throws NullPointerException
+	 *             if term is null
+	 */
+	public double weightOf(String term) {
+		char[] t = term.toCharArray();
+		int n = myWeights.length;
+		int chunks = chunks(n);
+		// terms are distinct, so any chunk's match is the match
+		int found = chunks == 1 ? find(t, 0, n)
+				: IntStream.range(0, chunks).parallel().map(c -> find(t, from(c, chunks, n), from(c + 1, chunks, n)))
+						.filter(i -> i >= 0).findAny().orElse(-1);
+		return found < 0 ? 0.0 : myWeights[found];
+	}
+
+	private int find(char[] term, int lo, int hi) {
+		for (int i = lo; i < hi; i++) {
+			if (myStarts[i + 1] - myStarts[i] == term.length && hasPrefix(i, term)) {
+				return i;
 			}
 		}
-		return maxTerm;
+		return -1;
 	}
 
-	public double weightOf(String term) {
-		for (Term t : myTerms) {
-			if (t.getWord().equalsIgnoreCase(term))
-				return t.getWeight();
+	private boolean hasPrefix(int i, char[] prefix) {
+		int start = myStarts[i];
+		return myStarts[i + 1] - start >= prefix.length
+				&& Arrays.equals(myChars, start, start + prefix.length, prefix, 0, prefix.length);
+	}
+
+	private static int chunks(int n) {
+		return Math.max(1, Math.min(n / MIN_CHUNK, 4 * ForkJoinPool.getCommonPoolParallelism()));
+	}
+
+	// first term of chunk c of chunks over n terms
+	private static int from(int c, int chunks, int n) {
+		return (int) ((long) n * c / chunks);
+	}
+
+	/**
+	 * The k heaviest terms accepted by the filters, in a heap. Each chunk gets
+	 * its own filter from filters.
+	 */
+	private Heap scan(int k, Supplier<IntPredicate> filters) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Illegal value of k:" + k);
 		}
-		// term is not in dictionary return 0
-		return 0;
+		int n = myWeights.length;
+		int chunks = chunks(n);
+		Heap ret;
+		if (k == 0) {
+			ret = new Heap(0);
+		} else if (chunks == 1) {
+			ret = scan(k, filters.get(), 0, n);
+		} else {
+			ret = IntStream.range(0, chunks).parallel()
+					.mapToObj(c -> scan(k, filters.get(), from(c, chunks, n), from(c + 1, chunks, n)))
+					.reduce(Heap::addAll).get();
+		}
+		QueryWork.add(n);
+		return ret;
+	}
+
+	private Heap scan(int k, IntPredicate filter, int lo, int hi) {
+		Heap heap = new Heap(k);
+		for (int i = lo; i < hi; i++) {
+			// the weight test is cheap and usually fails once the heap is full
+			if (heap.accepts(i) && filter.test(i)) {
+				heap.add(i);
+			}
+		}
+		return heap;
+	}
+
+	/**
+	 * Bounded min-heap of term indices by weight holding the k heaviest
+	 * added; of equal weights the lower index is kept.
+	 */
+	private class Heap {
+		private final int[] myIds;
+		private int mySize;
+
+		Heap(int k) {
+			myIds = new int[k];
+		}
+
+		int size() {
+			return mySize;
+		}
+
+		// whether a lighter than b
+		private boolean less(int a, int b) {
+			return myWeights[a] < myWeights[b] || (myWeights[a] == myWeights[b] && a > b);
+		}
+
+		boolean accepts(int i) {
+			return mySize < myIds.length || less(myIds[0], i);
+		}
+
+		void add(int i) {
+			if (mySize < myIds.length) {
+				int c = mySize++;
+				while (c > 0 && less(i, myIds[(c - 1) / 2])) {
+					myIds[c] = myIds[(c - 1) / 2];
+					c = (c - 1) / 2;
+				}
+				myIds[c] = i;
+			} else if (less(myIds[0], i)) {
+				siftDown(i);
+			}
+		}
+
+		// the lightest index
+		int remove() {
+			int ret = myIds[0];
+			int last = myIds[--mySize];
+			if (mySize > 0) {
+				siftDown(last);
+			}
+			return ret;
+		}
+
+		// replace the root with i
+		private void siftDown(int i) {
+			int c = 0;
+			while (2 * c + 1 < mySize) {
+				int child = 2 * c + 1;
+				if (child + 1 < mySize && less(myIds[child + 1], myIds[child])) {
+					child++;
+				}
+				if (!less(myIds[child], i)) {
+					break;
+				}
+				myIds[c] = myIds[child];
+				c = child;
+			}
+			myIds[c] = i;
+		}
+
+		Heap addAll(Heap other) {
+			for (int j = 0; j < other.mySize; j++) {
+				add(other.myIds[j]);
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * A term of myChars as a CharSequence, repointed for every term.
+	 */
+	private class View implements CharSequence {
+		private int myStart, myLength;
+
+		View of(int i) {
+			myStart = myStarts[i];
+			myLength = myStarts[i + 1] - myStart;
+			return this;
+		}
+
+		public int length() {
+			return myLength;
+		}
+
+		public char charAt(int index) {
+			if (index < 0 || index >= myLength) {
+				throw new IndexOutOfBoundsException("index " + index + " length " + myLength);
+			}
+			return myChars[myStart + index];
+		}
+
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return new String(myChars, myStart, myLength);
+		}
+	}
+
+	/**
+	 * Number of terms.
+	 */
+	public long nodeCount() {
+		return myWeights.length;
+	}
+
+	public long estimatedBytes() {
+		return IndexStats.arrayBytes(myChars.length, 2) + IndexStats.arrayBytes(myStarts.length, 4)
+				+ IndexStats.arrayBytes(myWeights.length, 8);
 	}
 }
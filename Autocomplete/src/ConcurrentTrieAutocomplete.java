@@ -0,0 +1,366 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Trie Autocompletor that can be changed while it is being queried. Nodes are
+ * immutable: a write copies the nodes on the path from the root to the word,
+ * recomputes mySubtreeMaxWeight on the way back up, and publishes the new root
+ * with a single volatile write. Readers take the root once per query and
+ * search that snapshot, so they never lock and never block on writers, and
+ * each query sees either all or none of a write. Writers are serialized with
+ * each other.
+ *
+ * Because mySubtreeMaxWeight is recomputed from the children on every copied
+ * node rather than only raised, it stays correct when weights go down and
+ * when words are removed.
+ */
+public class ConcurrentTrieAutocomplete implements Autocompletor, IndexStats {
+
+	/**
+	 * Immutable trie node. Children are kept in sorted arrays as in Node.
+	 */
+	static class PNode {
+		static final char[] NO_KEYS = new char[0];
+		static final PNode[] NO_CHILDREN = new PNode[0];
+		static final PNode EMPTY = new PNode(NO_KEYS, NO_CHILDREN, null, -1);
+
+		final char[] myKeys;
+		final PNode[] myChildren;
+		final String myWord;
+		final double myWeight;
+		final double mySubtreeMaxWeight;
+
+		PNode(char[] keys, PNode[] children, String word, double weight) {
+			myKeys = keys;
+			myChildren = children;
+			myWord = word;
+			myWeight = weight;
+			double max = word == null ? -1 : weight;
+			for (PNode child : children) {
+				max = Math.max(max, child.mySubtreeMaxWeight);
+			}
+			mySubtreeMaxWeight = max;
+		}
+
+		boolean isWord() {
+			return myWord != null;
+		}
+
+		boolean isEmpty() {
+			return myWord == null && myKeys.length == 0;
+		}
+
+		PNode getChild(char ch) {
+			int index = Arrays.binarySearch(myKeys, ch);
+			return index < 0 ? null : myChildren[index];
+		}
+
+		/**
+		 * Copy of this node with the child for ch replaced by child, or removed if
+		 * child is null.
+		 */
+		PNode withChild(char ch, PNode child) {
+			int index = Arrays.binarySearch(myKeys, ch);
+			char[] keys;
+			PNode[] children;
+			if (index >= 0 && child != null) {
+				keys = myKeys;
+				children = myChildren.clone();
+				children[index] = child;
+			} else if (index >= 0) {
+				keys = new char[myKeys.length - 1];
+				children = new PNode[myKeys.length - 1];
+				System.arraycopy(myKeys, 0, keys, 0, index);
+				System.arraycopy(myKeys, index + 1, keys, index, keys.length - index);
+				System.arraycopy(myChildren, 0, children, 0, index);
+				System.arraycopy(myChildren, index + 1, children, index, keys.length - index);
+			} else if (child != null) {
+				index = -(index + 1);
+				keys = new char[myKeys.length + 1];
+				children = new PNode[myKeys.length + 1];
+				System.arraycopy(myKeys, 0, keys, 0, index);
+				System.arraycopy(myKeys, index, keys, index + 1, myKeys.length - index);
+				System.arraycopy(myChildren, 0, children, 0, index);
+				System.arraycopy(myChildren, index, children, index + 1, myKeys.length - index);
+				keys[index] = ch;
+				children[index] = child;
+			} else {
+				return this;
+			}
+			return new PNode(keys, children, myWord, myWeight);
+		}
+
+		PNode withWord(String word, double weight) {
+			return new PNode(myKeys, myChildren, word, weight);
+		}
+	}
+
+	/**
+	 * Root of the current snapshot. Replaced, never modified.
+	 */
+	private volatile PNode myRoot = PNode.EMPTY;
+	private volatile int mySize;
+	private final Object myWriteLock = new Object();
+
+	/**
+	 * Create an index holding the given terms; more can be added later.
+	 *
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or any weight is negative
+	 */
+	public ConcurrentTrieAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		for (int i = 0; i < terms.length; i++) {
+			insert(terms[i], weights[i]);
+		}
+	}
+
+	/**
+	 * Add term with the given weight, or set its weight if it is already
+	 * present.
+	 *
+	 * @throws NullPointerException
+	 *             if term is null
+	 * @throws IllegalArgumentException
+	 *             if weight is negative
+	 */
+	public void insert(String term, double weight) {
+		if (term == null) {
+			throw new NullPointerException("null term");
+		}
+		if (weight < 0) {
+			throw new IllegalArgumentException("negative weight: " + weight);
+		}
+		synchronized (myWriteLock) {
+			PNode node = find(myRoot, term);
+			if (node == null || !node.isWord()) {
+				mySize++;
+			}
+			myRoot = put(myRoot, term, 0, term, weight);
+		}
+	}
+
+	/**
+	 * Add delta to the weight of term, inserting term with weight delta if it
+	 * is not present.
+	 *
+	 * @return the new weight
+	 * @throws NullPointerException
+	 *             if term is null
+	 * @throws IllegalArgumentException
+	 *             if the new weight would be negative
+	 */
+	public double updateWeight(String term, double delta) {
+		if (term == null) {
+			throw new NullPointerException("null term");
+		}
+		synchronized (myWriteLock) {
+			PNode node = find(myRoot, term);
+			boolean present = node != null && node.isWord();
+			double weight = (present ? node.myWeight : 0) + delta;
+			if (weight < 0) {
+				throw new IllegalArgumentException("negative weight for " + term + ": " + weight);
+			}
+			if (!present) {
+				mySize++;
+			}
+			myRoot = put(myRoot, term, 0, term, weight);
+			return weight;
+		}
+	}
+
+	/**
+	 * Remove term, pruning nodes that no longer lead to any word.
+	 *
+	 * @return true if term was present
+	 */
+	public boolean remove(String term) {
+		if (term == null) {
+			throw new NullPointerException("null term");
+		}
+		synchronized (myWriteLock) {
+			PNode node = find(myRoot, term);
+			if (node == null || !node.isWord()) {
+				return false;
+			}
+			PNode root = put(myRoot, term, 0, null, -1);
+			myRoot = root == null ? PNode.EMPTY : root;
+			mySize--;
+			return true;
+		}
+	}
+
+	/**
+	 * Copy of the path to term with the word at its end replaced by word and
+	 * weight (word null to remove it). Returns null if the resulting node is
+	 * empty and should be pruned.
+	 */
+	private static PNode put(PNode node, String term, int depth, String word, double weight) {
+		if (node == null) {
+			node = PNode.EMPTY;
+		}
+		PNode ret;
+		if (depth == term.length()) {
+			ret = node.withWord(word, weight);
+		} else {
+			char ch = term.charAt(depth);
+			ret = node.withChild(ch, put(node.getChild(ch), term, depth + 1, word, weight));
+		}
+		return ret.isEmpty() ? null : ret;
+	}
+
+	private static PNode find(PNode root, String prefix) {
+		PNode current = root;
+		for (int i = 0; i < prefix.length() && current != null; i++) {
+			current = current.getChild(prefix.charAt(i));
+		}
+		return current;
+	}
+
+	/**
+	 * Number of terms currently in the index.
+	 */
+	public int size() {
+		return mySize;
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same best-first search as TrieAutocomplete, over the snapshot current
+	 * when the call starts.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		PNode start = find(myRoot, prefix);
+		if (k <= 0 || start == null) {
+			return ret;
+		}
+		PriorityQueue<PNode> nodePQ = new PriorityQueue<PNode>(
+				(a, b) -> Double.compare(b.mySubtreeMaxWeight, a.mySubtreeMaxWeight));
+		PriorityQueue<Term> tPQ = new PriorityQueue<Term>(k, new Term.WeightOrder());
+		nodePQ.add(start);
+		int visited = 0;
+		while (nodePQ.size() > 0) {
+			if (tPQ.size() >= k && tPQ.peek().getWeight() > nodePQ.peek().mySubtreeMaxWeight) {
+				break;
+			}
+			PNode top = nodePQ.remove();
+			visited++;
+			if (top.isWord()) {
+				tPQ.add(new Term(top.myWord, top.myWeight));
+				if (tPQ.size() > k) {
+					tPQ.remove();
+				}
+			}
+			for (PNode child : top.myChildren) {
+				nodePQ.add(child);
+			}
+		}
+		QueryWork.add(visited);
+		while (tPQ.size() > 0) {
+			ret.addFirst(tPQ.remove());
+		}
+		return ret;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		PNode current = find(myRoot, prefix);
+		if (current == null || current.mySubtreeMaxWeight < 0) {
+			return "";
+		}
+		while (current.mySubtreeMaxWeight != current.myWeight || !current.isWord()) { // follow the max down
+			for (PNode child : current.myChildren) {
+				if (child.mySubtreeMaxWeight == current.mySubtreeMaxWeight) {
+					current = child;
+					break;
+				}
+			}
+		}
+		return current.myWord;
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		PNode node = find(myRoot, term);
+		if (node == null || !node.isWord()) {
+			return 0.0;
+		}
+		return node.myWeight;
+	}
+
+	/**
+	 * Number of nodes in the current snapshot, including the root.
+	 */
+	public long nodeCount() {
+		return countNodes(myRoot);
+	}
+
+	private static long countNodes(PNode node) {
+		long ret = 1;
+		for (PNode child : node.myChildren) {
+			ret += countNodes(child);
+		}
+		return ret;
+	}
+
+	/**
+	 * Estimated bytes of the current snapshot.
+	 */
+	public long estimatedBytes() {
+		return estimatedBytes(myRoot);
+	}
+
+	private static long estimatedBytes(PNode node) {
+		// 3 references, 2 doubles; leaves share the empty key and child arrays
+		long ret = IndexStats.objectBytes(28);
+		if (node.myKeys.length > 0) {
+			ret += IndexStats.arrayBytes(node.myKeys.length, 2) + IndexStats.arrayBytes(node.myChildren.length, 4);
+		}
+		if (node.isWord()) {
+			ret += IndexStats.stringBytes(node.myWord);
+		}
+		for (PNode child : node.myChildren) {
+			ret += estimatedBytes(child);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,318 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Columnar version of BinarySearchAutocomplete. Instead of a Term[] with a
+ * String and a double per entry, the sorted terms are front-coded into one
+ * char[] in blocks of BLOCK_SIZE, and the weights are a separate double[] in
+ * the same order. A prefix range is found by binary search over the first
+ * term of each block followed by a scan of at most two blocks, and top-k
+ * comes from a RangeMaxIndex over the weight column.
+ *
+ * Block layout in myData: the first term is stored as its length followed by
+ * its chars; every other term as the length of the prefix it shares with the
+ * term before it, the length of the rest, and the rest. Lengths are single
+ * chars, so terms are limited to Character.MAX_VALUE characters.
+ */
+public class FrontCodedAutocomplete implements Autocompletor, IndexStats {
+
+	public static final int BLOCK_SIZE = 16;
+
+	char[] myData;
+
+	/**
+	 * myBlocks[b] is the offset in myData of term b * BLOCK_SIZE.
+	 */
+	int[] myBlocks;
+
+	/**
+	 * Weight of the i-th term in sorted order.
+	 */
+	double[] myWeights;
+
+	RangeMaxIndex myMaxIndex;
+	int mySize;
+	int myMaxLength;
+
+	/**
+	 * Build the index from terms and weights, which are not kept.
+	 *
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates, a weight is negative or a term is too long
+	 */
+	public FrontCodedAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		Term[] sorted = new Term[terms.length];
+		int total = 0;
+		for (int i = 0; i < terms.length; i++) {
+			if (terms[i].length() > Character.MAX_VALUE) {
+				throw new IllegalArgumentException("term too long: " + terms[i].length());
+			}
+			sorted[i] = new Term(terms[i], weights[i]); // checks for negative weights
+			total += terms[i].length() + 2;
+			myMaxLength = Math.max(myMaxLength, terms[i].length());
+		}
+		Arrays.sort(sorted);
+
+		mySize = sorted.length;
+		myWeights = new double[mySize];
+		myBlocks = new int[(mySize + BLOCK_SIZE - 1) / BLOCK_SIZE];
+		char[] data = new char[total];
+		int pos = 0;
+		String prev = "";
+		for (int i = 0; i < mySize; i++) {
+			String word = sorted[i].getWord();
+			myWeights[i] = sorted[i].getWeight();
+			int shared = 0;
+			if (i % BLOCK_SIZE == 0) {
+				myBlocks[i / BLOCK_SIZE] = pos;
+			} else {
+				int n = Math.min(prev.length(), word.length());
+				while (shared < n && prev.charAt(shared) == word.charAt(shared)) {
+					shared++;
+				}
+				data[pos++] = (char) shared;
+			}
+			data[pos++] = (char) (word.length() - shared);
+			word.getChars(shared, word.length(), data, pos);
+			pos += word.length() - shared;
+			prev = word;
+		}
+		myData = Arrays.copyOf(data, pos);
+		myMaxIndex = new RangeMaxIndex(myWeights);
+	}
+
+	/**
+	 * Compare prefix with the first prefix.length() chars of buf[0, len), as
+	 * BinarySearchAutocomplete.comparePrefix does for Strings.
+	 */
+	private static int comparePrefix(String prefix, char[] buf, int len) {
+		for (int i = 0; i < prefix.length(); i++) {
+			if (i == len) {
+				return 1;
+			}
+			int diff = prefix.charAt(i) - buf[i];
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Compare prefix with the first term of block b without copying it.
+	 */
+	private int compareBlock(String prefix, int b) {
+		int pos = myBlocks[b];
+		int len = myData[pos++];
+		for (int i = 0; i < prefix.length(); i++) {
+			if (i == len) {
+				return 1;
+			}
+			int diff = prefix.charAt(i) - myData[pos + i];
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Decode term index into buf, which must hold myMaxLength chars.
+	 *
+	 * @return the length of the term
+	 */
+	int decode(int index, char[] buf) {
+		int b = index / BLOCK_SIZE;
+		int pos = myBlocks[b];
+		for (int i = b * BLOCK_SIZE; i < index; i++) {
+			decodeEntry(pos, i % BLOCK_SIZE == 0, buf);
+			pos = nextEntry(pos, i % BLOCK_SIZE == 0);
+		}
+		return decodeEntry(pos, index % BLOCK_SIZE == 0, buf);
+	}
+
+	/*
+	 * Decode the entry at pos into buf, which already holds the previous term
+	 * of the block unless this is the block's first entry, and return the
+	 * length of the decoded term.
+	 */
+	private int decodeEntry(int pos, boolean first, char[] buf) {
+		int shared = first ? 0 : myData[pos++];
+		int rest = myData[pos++];
+		System.arraycopy(myData, pos, buf, shared, rest);
+		return shared + rest;
+	}
+
+	// position of the entry following the one at pos
+	private int nextEntry(int pos, boolean first) {
+		int header = first ? 1 : 2;
+		return pos + header + myData[pos + header - 1];
+	}
+
+	/**
+	 * Index of the first term starting with prefix, or -1.
+	 */
+	int firstIndexOf(String prefix, char[] buf) {
+		if (mySize == 0) {
+			return -1;
+		}
+		int low = -1;
+		int high = myBlocks.length; // first term of block low < prefix <= first term of block high
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (compareBlock(prefix, mid) <= 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		int start = Math.max(low, 0) * BLOCK_SIZE;
+		int end = Math.min(mySize, (low + 1) * BLOCK_SIZE + 1); // through first of block high
+		int pos = myBlocks[start / BLOCK_SIZE];
+		for (int i = start; i < end; i++) {
+			boolean first = i % BLOCK_SIZE == 0;
+			int cmp = comparePrefix(prefix, buf, decodeEntry(pos, first, buf));
+			pos = nextEntry(pos, first);
+			if (cmp <= 0) {
+				return cmp == 0 ? i : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Index of the last term starting with prefix, or -1.
+	 */
+	int lastIndexOf(String prefix, char[] buf) {
+		int low = -1;
+		int high = myBlocks.length; // first term of block low <= prefix < first term of block high
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (compareBlock(prefix, mid) < 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		if (low < 0) {
+			return -1;
+		}
+		int start = low * BLOCK_SIZE;
+		int end = Math.min(mySize, start + BLOCK_SIZE);
+		int pos = myBlocks[low];
+		int last = -1;
+		for (int i = start; i < end; i++) {
+			int cmp = comparePrefix(prefix, buf, decodeEntry(pos, i == start, buf));
+			pos = nextEntry(pos, i == start);
+			if (cmp < 0) {
+				break;
+			}
+			if (cmp == 0) {
+				last = i;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Same contract as BinarySearchAutocomplete.topMatches.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as topMatches, with weights read from the weight column.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (k <= 0) {
+			return ret;
+		}
+		char[] buf = new char[myMaxLength];
+		int first = firstIndexOf(prefix, buf);
+		if (first < 0) {
+			return ret;
+		}
+		int last = lastIndexOf(prefix, buf);
+		QueryWork.add(last - first + 1);
+		for (int i : myMaxIndex.topIndices(first, last, k)) {
+			ret.add(new Term(new String(buf, 0, decode(i, buf)), myWeights[i]));
+		}
+		return ret;
+	}
+
+	/**
+	 * Same contract as BinarySearchAutocomplete.topMatch.
+	 *
+	 * @throws a
+	 *             NullPointerException if the prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		char[] buf = new char[myMaxLength];
+		int first = firstIndexOf(prefix, buf);
+		if (first < 0) {
+			return "";
+		}
+		int best = myMaxIndex.argMax(first, lastIndexOf(prefix, buf));
+		return new String(buf, 0, decode(best, buf));
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		char[] buf = new char[myMaxLength];
+		int index = firstIndexOf(term, buf);
+		if (index < 0 || decode(index, buf) != term.length()) { // only longer terms start with term
+			return 0.0;
+		}
+		return myWeights[index];
+	}
+
+	/**
+	 * Number of terms.
+	 */
+	public long nodeCount() {
+		return mySize;
+	}
+
+	public long estimatedBytes() {
+		// the front-coded chars, block offsets, weight column and the tree of myMaxIndex
+		return IndexStats.arrayBytes(myData.length, 2) + IndexStats.arrayBytes(myBlocks.length, 4)
+				+ IndexStats.arrayBytes(mySize, 8) + IndexStats.arrayBytes(RangeMaxIndex.treeSize(mySize), 4);
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ * Size of an Autocompletor's index, for monitoring. Byte figures are
+ * estimates for a 64-bit JVM with compressed references and compact strings;
+ * they count the index's own objects, including the term Strings, and are
+ * meant for comparing implementations and watching growth, not as an exact
+ * heap measurement.
+ */
+public interface IndexStats {
+
+	/**
+	 * Number of nodes in the index; for an index without nodes, the number of
+	 * entries.
+	 */
+	public long nodeCount();
+
+	/**
+	 * Estimated bytes of heap held by the index.
+	 */
+	public long estimatedBytes();
+
+	/**
+	 * Estimated size of an object with the given bytes of fields.
+	 */
+	public static long objectBytes(int fieldBytes) {
+		return align(12 + fieldBytes);
+	}
+
+	/**
+	 * Estimated size of an array of length elements of elementBytes each.
+	 */
+	public static long arrayBytes(int length, int elementBytes) {
+		return align(16 + (long) length * elementBytes);
+	}
+
+	/**
+	 * Estimated size of s, including its backing array.
+	 */
+	public static long stringBytes(String s) {
+		boolean latin1 = true;
+		for (int i = 0; i < s.length() && latin1; i++) {
+			latin1 = s.charAt(i) < 256;
+		}
+		return objectBytes(12) + arrayBytes(s.length(), latin1 ? 1 : 2);
+	}
+
+	static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+}
@@ -0,0 +1,300 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Autocompletor that matches anywhere in a term, not just at its start:
+ * topMatches("york", k) finds "New York". The terms are laid end to end,
+ * each followed by a '\0', and a suffix array lists every position of that
+ * text in sorted order of the suffix starting there. The suffixes that start
+ * with a query are one contiguous range of the array, found by binary search
+ * in O(m log n) for a query of length m, and a RangeMaxIndex over the weight
+ * of each suffix's term gives the heaviest suffixes in the range first. A term
+ * containing the query several times has several suffixes in the range, so
+ * the k heaviest distinct terms take k plus the repeats steps, independent
+ * of the size of the range.
+ *
+ * The empty query matches every term, through the suffix starting at each
+ * term's '\0'.
+ */
+public class InfixAutocomplete implements Autocompletor {
+
+	private static final char END = '\0';
+
+	/**
+	 * Small ranges are finished with insertion sort when building the suffix
+	 * array.
+	 */
+	private static final int INSERTION_SORT = 16;
+
+	/**
+	 * The terms sorted by word; term ids index this array.
+	 */
+	private final Term[] myTerms;
+
+	/**
+	 * Every term followed by END, in myTerms order.
+	 */
+	private final char[] myText;
+
+	/**
+	 * Positions in myText in sorted order of their suffixes, and the term id
+	 * of each.
+	 */
+	private final int[] mySuffixes;
+	private final int[] mySuffixTerms;
+
+	/**
+	 * Range-maximum index over the weights of mySuffixTerms.
+	 */
+	private final RangeMaxIndex myMaxIndex;
+
+	/**
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or a term containing '\0', or any weight is
+	 *             negative
+	 */
+	public InfixAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		int n = terms.length;
+		myTerms = new Term[n];
+		int length = 0;
+		for (int i = 0; i < n; i++) {
+			if (terms[i].indexOf(END) >= 0) {
+				throw new IllegalArgumentException("term contains \\0: " + terms[i]);
+			}
+			myTerms[i] = new Term(terms[i], weights[i]);
+			length += terms[i].length() + 1;
+		}
+		Arrays.sort(myTerms);
+
+		myText = new char[length];
+		mySuffixes = new int[length];
+		int[] termAt = new int[length];
+		int pos = 0;
+		for (int i = 0; i < n; i++) {
+			String word = myTerms[i].getWord();
+			word.getChars(0, word.length(), myText, pos);
+			for (int j = 0; j <= word.length(); j++) {
+				termAt[pos + j] = i;
+			}
+			pos += word.length();
+			myText[pos++] = END;
+		}
+		for (int i = 0; i < length; i++) {
+			mySuffixes[i] = i;
+		}
+		sort(0, length, 0);
+
+		mySuffixTerms = new int[length];
+		double[] suffixWeights = new double[length];
+		for (int i = 0; i < length; i++) {
+			mySuffixTerms[i] = termAt[mySuffixes[i]];
+			suffixWeights[i] = myTerms[mySuffixTerms[i]].getWeight();
+		}
+		myMaxIndex = new RangeMaxIndex(suffixWeights);
+	}
+
+	/*
+	 * Sort mySuffixes[lo, hi), whose suffixes all agree on their first depth
+	 * characters, by three-way radix quicksort (Bentley and Sedgewick): split
+	 * on the character at depth around a pivot, then sort the equal part on
+	 * the next character. Every suffix ends at an END, so the character at
+	 * depth always exists and suffixes equal up to an END are equal.
+	 */
+	private void sort(int lo, int hi, int depth) {
+		while (hi - lo > INSERTION_SORT) {
+			char pivot = median(charAt(lo, depth), charAt((lo + hi) >>> 1, depth), charAt(hi - 1, depth));
+			int lt = lo, gt = hi, i = lo;
+			while (i < gt) { // [lo, lt) < pivot, [lt, i) == pivot, [gt, hi) > pivot
+				char ch = charAt(i, depth);
+				if (ch < pivot) {
+					swap(lt++, i++);
+				} else if (ch > pivot) {
+					swap(i, --gt);
+				} else {
+					i++;
+				}
+			}
+			sort(lo, lt, depth);
+			if (pivot != END) {
+				sort(lt, gt, depth + 1);
+			}
+			lo = gt; // loop on the greater part instead of recursing
+		}
+		insertionSort(lo, hi, depth);
+	}
+
+	private void insertionSort(int lo, int hi, int depth) {
+		for (int i = lo + 1; i < hi; i++) {
+			for (int j = i; j > lo && compareSuffixes(mySuffixes[j], mySuffixes[j - 1], depth) < 0; j--) {
+				swap(j, j - 1);
+			}
+		}
+	}
+
+	private int compareSuffixes(int a, int b, int depth) {
+		for (int d = depth;; d++) {
+			char ca = myText[a + d];
+			char cb = myText[b + d];
+			if (ca != cb) {
+				return ca - cb;
+			}
+			if (ca == END) {
+				return 0;
+			}
+		}
+	}
+
+	private char charAt(int i, int depth) {
+		return myText[mySuffixes[i] + depth];
+	}
+
+	private static char median(char a, char b, char c) {
+		return (char) Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	private void swap(int i, int j) {
+		int tmp = mySuffixes[i];
+		mySuffixes[i] = mySuffixes[j];
+		mySuffixes[j] = tmp;
+	}
+
+	/*
+	 * Compare query with the first query.length() characters of suffix i, as
+	 * BinarySearchAutocomplete.comparePrefix does: 0 if the suffix starts with
+	 * query.
+	 */
+	private int compareQuery(String query, int i) {
+		int start = mySuffixes[i];
+		for (int j = 0; j < query.length(); j++) {
+			char ch = myText[start + j];
+			if (ch == END) { // suffix is a proper prefix of query
+				return 1;
+			}
+			int diff = query.charAt(j) - ch;
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	// first index of a suffix starting with query, or -1
+	private int firstIndexOf(String query) {
+		int low = -1;
+		int high = mySuffixes.length;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (compareQuery(query, mid) <= 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return high < mySuffixes.length && compareQuery(query, high) == 0 ? high : -1;
+	}
+
+	// last index of a suffix starting with query, given that one exists
+	private int lastIndexOf(String query) {
+		int low = -1;
+		int high = mySuffixes.length;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (compareQuery(query, mid) < 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return low;
+	}
+
+	public Iterable<String> topMatches(String query, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(query, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * The k heaviest terms containing query anywhere, heaviest first.
+	 *
+	 * @throws NullPointerException
+	 *             if query is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String query, int k) {
+		if (query == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		int first = firstIndexOf(query);
+		if (k <= 0 || first < 0) {
+			return ret;
+		}
+		int last = lastIndexOf(query);
+		QueryWork.add(last - first + 1);
+		HashSet<Integer> seen = new HashSet<Integer>();
+		PrimitiveIterator.OfInt it = myMaxIndex.descending(first, last);
+		while (ret.size() < k && it.hasNext()) {
+			int term = mySuffixTerms[it.nextInt()];
+			if (seen.add(term)) {
+				ret.add(myTerms[term]);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * The heaviest term containing query, or an empty string if there is none.
+	 *
+	 * @throws NullPointerException
+	 *             if query is null
+	 */
+	public String topMatch(String query) {
+		if (query == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		int first = firstIndexOf(query);
+		if (first < 0) {
+			return "";
+		}
+		return myTerms[mySuffixTerms[myMaxIndex.argMax(first, lastIndexOf(query))]].getWord();
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		int low = 0, high = myTerms.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = myTerms[mid].getWord().compareTo(term);
+			if (cmp == 0) {
+				return myTerms[mid].getWeight();
+			} else if (cmp < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return 0.0;
+	}
+}
@@ -0,0 +1,222 @@
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Autocompletor that passes every query to another one and records how it
+ * went, e.g.
+ *
+ * <pre>
+ * InstrumentedAutocompletor auto = new InstrumentedAutocompletor(new TrieAutocomplete(terms, weights));
+ * auto.register("cities");
+ * </pre>
+ *
+ * For topMatches, topMatchesWithWeights and topMatch it records the latency;
+ * for the first two also the number of candidates examined (see QueryWork)
+ * and the number of results. All recording is lock-free histogram and adder
+ * updates, a few tens of nanoseconds per query, so it can stay on in
+ * production. weightOf is passed through unrecorded.
+ */
+public class InstrumentedAutocompletor implements Autocompletor, AutocompleteMetricsMBean {
+
+	public static final String OBJECT_NAME_PREFIX = "Autocomplete:type=AutocompleteMetrics,name=";
+
+	private final Autocompletor myAutocompletor;
+	private final LogHistogram myLatency = new LogHistogram();
+	private final LogHistogram myExamined = new LogHistogram();
+	private final LongAdder myTopKQueries = new LongAdder();
+	private final LongAdder myResults = new LongAdder();
+	private final LongAdder myEmptyResults = new LongAdder();
+	private final LongAdder myIncompleteResults = new LongAdder();
+
+	public InstrumentedAutocompletor(Autocompletor autocompletor) {
+		if (autocompletor == null) {
+			throw new NullPointerException("null autocompletor");
+		}
+		myAutocompletor = autocompletor;
+		QueryWork.ourEnabled = true;
+	}
+
+	/**
+	 * Register this instance with the platform MBean server under
+	 * OBJECT_NAME_PREFIX + name.
+	 *
+	 * @throws IllegalStateException
+	 *             if registration fails, e.g. the name is already taken
+	 */
+	public void register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name)));
+		} catch (JMException e) {
+			throw new IllegalStateException("could not register metrics: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The Autocompletor being measured.
+	 */
+	public Autocompletor getAutocompletor() {
+		return myAutocompletor;
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		QueryWork.take();
+		long start = System.nanoTime();
+		Iterable<String> ret = myAutocompletor.topMatches(prefix, k);
+		myLatency.record(System.nanoTime() - start);
+		recordTopK(ret);
+		return ret;
+	}
+
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		QueryWork.take();
+		long start = System.nanoTime();
+		Iterable<Term> ret = myAutocompletor.topMatchesWithWeights(prefix, k);
+		myLatency.record(System.nanoTime() - start);
+		recordTopK(ret);
+		return ret;
+	}
+
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		QueryWork.take();
+		long start = System.nanoTime();
+		int ret = myAutocompletor.topMatches(prefix, results);
+		myLatency.record(System.nanoTime() - start);
+		myExamined.record(QueryWork.take());
+		recordCount(ret);
+		if (!results.isComplete()) {
+			myIncompleteResults.increment();
+		}
+		return ret;
+	}
+
+	private void recordTopK(Iterable<?> results) {
+		myExamined.record(QueryWork.take());
+		long count = 0;
+		if (results instanceof Collection) {
+			count = ((Collection<?>) results).size();
+		} else {
+			for (Object o : results) {
+				count++;
+			}
+		}
+		recordCount(count);
+	}
+
+	private void recordCount(long count) {
+		myTopKQueries.increment();
+		myResults.add(count);
+		if (count == 0) {
+			myEmptyResults.increment();
+		}
+	}
+
+	public String topMatch(String prefix) {
+		long start = System.nanoTime();
+		String ret = myAutocompletor.topMatch(prefix);
+		myLatency.record(System.nanoTime() - start);
+		return ret;
+	}
+
+	public double weightOf(String term) {
+		return myAutocompletor.weightOf(term);
+	}
+
+	public String getImplementation() {
+		return myAutocompletor.getClass().getName();
+	}
+
+	public long getQueries() {
+		return myLatency.count();
+	}
+
+	public double getMeanMicros() {
+		return myLatency.mean() / 1e3;
+	}
+
+	public double getP50Micros() {
+		return myLatency.percentile(0.50) / 1e3;
+	}
+
+	public double getP99Micros() {
+		return myLatency.percentile(0.99) / 1e3;
+	}
+
+	public double getP999Micros() {
+		return myLatency.percentile(0.999) / 1e3;
+	}
+
+	public double getMaxMicros() {
+		return myLatency.max() / 1e3;
+	}
+
+	public double getMeanExamined() {
+		return myExamined.mean();
+	}
+
+	public long getP99Examined() {
+		return myExamined.percentile(0.99);
+	}
+
+	public long getMaxExamined() {
+		return myExamined.max();
+	}
+
+	/**
+	 * Mean number of results of topMatches queries.
+	 */
+	public double getMeanResults() {
+		long queries = myTopKQueries.sum();
+		return queries == 0 ? 0 : myResults.sum() / (double) queries;
+	}
+
+	/**
+	 * Number of topMatches queries that found nothing.
+	 */
+	public long getEmptyResults() {
+		return myEmptyResults.sum();
+	}
+
+	/**
+	 * Number of MatchBuffer queries that ran out of budget.
+	 */
+	public long getIncompleteResults() {
+		return myIncompleteResults.sum();
+	}
+
+	public long getNodeCount() {
+		if (myAutocompletor instanceof IndexStats) {
+			return ((IndexStats) myAutocompletor).nodeCount();
+		}
+		return -1;
+	}
+
+	public long getEstimatedBytes() {
+		if (myAutocompletor instanceof IndexStats) {
+			return ((IndexStats) myAutocompletor).estimatedBytes();
+		}
+		return -1;
+	}
+
+	public void reset() {
+		myLatency.reset();
+		myExamined.reset();
+		myTopKQueries.reset();
+		myResults.reset();
+		myEmptyResults.reset();
+		myIncompleteResults.reset();
+	}
+
+	public String toString() {
+		return String.format("%s queries=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus examined=%.1f results=%.1f",
+				getImplementation(), getQueries(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros(),
+				getMeanExamined(), getMeanResults());
+	}
+}
@@ -0,0 +1,206 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Headless benchmark of every Autocompletor implementation over every data
+ * file. For each pair it reports build time, heap retained by the index, and
+ * p50/p99/p99.9 latency of topMatches for each prefix length and k.
+ *
+ * Each query is timed on its own and every sample is kept, so percentiles are
+ * exact rather than averages over a loop. Queries are warmed up before they
+ * are measured, use prefixes of randomly chosen terms (fixed seed), and feed
+ * their results to a sink so the JIT cannot drop them.
+ *
+ * <pre>
+ * java LatencyBenchmark                       all implementations, data/
+ * java LatencyBenchmark data/cities.txt       one file
+ * java LatencyBenchmark -i Trie,Radix data    some implementations
+ * </pre>
+ *
+ * Run with a fixed heap (e.g. -Xms2g -Xmx2g) so the heap figures are stable.
+ */
+public class LatencyBenchmark {
+
+	interface Factory {
+		Autocompletor build(String[] terms, double[] weights) throws IOException;
+	}
+
+	static final Map<String, Factory> IMPLEMENTATIONS = new LinkedHashMap<String, Factory>();
+	static {
+		IMPLEMENTATIONS.put("Brute", BruteAutocomplete::new);
+		IMPLEMENTATIONS.put("BinarySearch", BinarySearchAutocomplete::new);
+		IMPLEMENTATIONS.put("Trie", TrieAutocomplete::new);
+		IMPLEMENTATIONS.put("CachedTrie", (t, w) -> new TrieAutocomplete(t, w, 10));
+		IMPLEMENTATIONS.put("Radix", RadixAutocomplete::new);
+		IMPLEMENTATIONS.put("FrontCoded", FrontCodedAutocomplete::new);
+		IMPLEMENTATIONS.put("ConcurrentTrie", ConcurrentTrieAutocomplete::new);
+		IMPLEMENTATIONS.put("Sharded", ShardedAutocomplete::new);
+		IMPLEMENTATIONS.put("Infix", InfixAutocomplete::new);
+		IMPLEMENTATIONS.put("WordStart", WordStartAutocomplete::new);
+		IMPLEMENTATIONS.put("NormalizedTrie", NormalizedAutocompletor::new);
+		// filters prefixes up to the longest in PREFIX_LENGTHS
+		IMPLEMENTATIONS.put("PrefixFilteredTrie",
+				(t, w) -> new PrefixFilterAutocompletor(new TrieAutocomplete(t, w), t, 6));
+		IMPLEMENTATIONS.put("Popularity", PopularityAutocompletor::new);
+		IMPLEMENTATIONS.put("Mapped", (t, w) -> {
+			File index = File.createTempFile("benchmark", MappedAutocomplete.SUFFIX);
+			index.deleteOnExit();
+			MappedAutocomplete.write(t, w, index);
+			return new MappedAutocomplete(index);
+		});
+	}
+
+	static final int[] PREFIX_LENGTHS = { 0, 1, 2, 3, 4, 6 };
+	static final int[] KS = { 1, 10, 100 };
+	static final int BUILDS = 3;
+	static final int DISTINCT_PREFIXES = 1000;
+	static final int WARMUP_QUERIES = 2000;
+	static final int MAX_SAMPLES = 20000;
+	static final long CELL_NANOS = 500_000_000L; // time limit for the samples of one length and k
+
+	// "%-Ns" for the impl column, wide enough for every name in IMPLEMENTATIONS
+	static final String IMPL_COLUMN = "%-"
+			+ IMPLEMENTATIONS.keySet().stream().mapToInt(String::length).max().getAsInt() + "s";
+
+	static volatile long ourSink;
+
+	public static void main(String[] args) throws IOException {
+		List<String> names = new ArrayList<String>(IMPLEMENTATIONS.keySet());
+		List<File> files = new ArrayList<File>();
+		for (int a = 0; a < args.length; a++) {
+			if (args[a].equals("-i") && a + 1 < args.length) {
+				names = Arrays.asList(args[++a].split(","));
+				for (String name : names) {
+					if (!IMPLEMENTATIONS.containsKey(name)) {
+						System.err.println("unknown implementation " + name + ", expected one of "
+								+ IMPLEMENTATIONS.keySet());
+						System.exit(1);
+					}
+				}
+			} else {
+				addFiles(new File(args[a]), files);
+			}
+		}
+		if (files.isEmpty()) {
+			addFiles(new File("data"), files);
+		}
+
+		System.out.printf("%-36s " + IMPL_COLUMN + " %8s %10s %10s%n", "file", "impl", "terms", "build ms", "heap MB");
+		System.out.printf("%-36s " + IMPL_COLUMN + " %4s %4s %8s %10s %10s %10s%n", "", "", "len", "k", "samples", "p50 us",
+				"p99 us", "p99.9 us");
+		for (File file : files) {
+			TermLoader data;
+			try {
+				data = TermLoader.load(file);
+			} catch (IllegalArgumentException e) {
+				System.err.println("skipping " + file + ": " + e.getMessage());
+				continue;
+			}
+			for (String name : names) {
+				run(file.getName(), name, IMPLEMENTATIONS.get(name), data.terms(), data.weights());
+			}
+		}
+	}
+
+	private static void addFiles(File file, List<File> files) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.getName().endsWith(".txt")) {
+					files.add(child);
+				}
+			}
+		} else {
+			files.add(file);
+		}
+	}
+
+	private static void run(String fileName, String name, Factory factory, String[] terms, double[] weights)
+			throws IOException {
+		// build once to warm up, then time the rest and keep the last
+		long before = usedHeap();
+		long[] buildNanos = new long[BUILDS];
+		Autocompletor auto = factory.build(terms, weights);
+		for (int b = 0; b < BUILDS; b++) {
+			auto = null;
+			long start = System.nanoTime();
+			auto = factory.build(terms, weights);
+			buildNanos[b] = System.nanoTime() - start;
+		}
+		long heap = usedHeap() - before;
+		Arrays.sort(buildNanos);
+		System.out.printf("%-36s " + IMPL_COLUMN + " %8d %10.1f %10.1f%n", fileName, name, terms.length,
+				buildNanos[BUILDS / 2] / 1e6, heap / (1024.0 * 1024));
+
+		Random random = new Random(1234);
+		for (int len : PREFIX_LENGTHS) {
+			String[] prefixes = prefixes(terms, len, random);
+			if (prefixes.length == 0) {
+				continue;
+			}
+			for (int k : KS) {
+				for (int i = 0; i < WARMUP_QUERIES; i++) {
+					query(auto, prefixes[i % prefixes.length], k);
+				}
+				long[] samples = new long[MAX_SAMPLES];
+				int n = 0;
+				long end = System.nanoTime() + CELL_NANOS;
+				while (n < MAX_SAMPLES && (n < 100 || System.nanoTime() < end)) {
+					String prefix = prefixes[n % prefixes.length];
+					long start = System.nanoTime();
+					query(auto, prefix, k);
+					samples[n++] = System.nanoTime() - start;
+				}
+				Arrays.sort(samples, 0, n);
+				System.out.printf("%-36s " + IMPL_COLUMN + " %4d %4d %8d %10.2f %10.2f %10.2f%n", "", "", len, k, n,
+						percentile(samples, n, 0.50) / 1e3, percentile(samples, n, 0.99) / 1e3,
+						percentile(samples, n, 0.999) / 1e3);
+			}
+		}
+		ourSink += auto.hashCode();
+	}
+
+	private static void query(Autocompletor auto, String prefix, int k) {
+		long sink = 0;
+		for (String s : auto.topMatches(prefix, k)) {
+			sink += s.length();
+		}
+		ourSink += sink;
+	}
+
+	/*
+	 * Up to DISTINCT_PREFIXES prefixes of length len of randomly chosen terms
+	 * at least that long, in random order.
+	 */
+	private static String[] prefixes(String[] terms, int len, Random random) {
+		ArrayList<String> ret = new ArrayList<String>();
+		for (int tries = 0; tries < 20 * DISTINCT_PREFIXES && ret.size() < DISTINCT_PREFIXES; tries++) {
+			String term = terms[random.nextInt(terms.length)];
+			if (term.length() >= len) {
+				ret.add(term.substring(0, len));
+			}
+		}
+		return ret.toArray(new String[0]);
+	}
+
+	// nearest-rank percentile of the n sorted samples
+	private static long percentile(long[] sorted, int n, double p) {
+		int rank = (int) Math.ceil(p * n);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
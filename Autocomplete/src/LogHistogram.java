@@ -0,0 +1,107 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative longs (latencies in nanoseconds, counts of nodes
+ * examined) in the style of HdrHistogram: each power of two is split into 32
+ * equal buckets, so any value is reported within about 3% using under 2,000
+ * counters for the whole range of long. Recording is a single atomic
+ * increment and is safe from any number of threads.
+ */
+public class LogHistogram {
+
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+	private final AtomicLongArray myCounts = new AtomicLongArray(BUCKETS);
+	private final LongAdder myTotal = new LongAdder();
+
+	/**
+	 * Count one occurrence of value; negative values count as 0.
+	 */
+	public void record(long value) {
+		myCounts.incrementAndGet(bucket(Math.max(value, 0)));
+		myTotal.add(Math.max(value, 0));
+	}
+
+	// values below 2 * SUB_COUNT have a bucket each
+	static int bucket(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BITS;
+		return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+	}
+
+	// largest value that falls in bucket
+	static long highestValue(int bucket) {
+		if (bucket < 2 * SUB_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_COUNT - 1;
+		long lowest = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+	/**
+	 * Number of values recorded.
+	 */
+	public long count() {
+		long count = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			count += myCounts.get(b);
+		}
+		return count;
+	}
+
+	/**
+	 * Mean of the values recorded, or 0 if there are none.
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : myTotal.sum() / (double) count;
+	}
+
+	/**
+	 * The value at or below which fraction p (0 to 1) of the recorded values
+	 * fall, rounded up to the top of its bucket; 0 if nothing was recorded.
+	 */
+	public long percentile(double p) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			counts[b] = myCounts.get(b);
+			count += counts[b];
+		}
+		long rank = Math.max(1, (long) Math.ceil(p * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += counts[b];
+			if (seen >= rank) {
+				return highestValue(b);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Largest value recorded, to within a bucket.
+	 */
+	public long max() {
+		for (int b = BUCKETS - 1; b >= 0; b--) {
+			if (myCounts.get(b) > 0) {
+				return highestValue(b);
+			}
+		}
+		return 0;
+	}
+
+	public void reset() {
+		for (int b = 0; b < BUCKETS; b++) {
+			myCounts.set(b, 0);
+		}
+		myTotal.reset();
+	}
+}
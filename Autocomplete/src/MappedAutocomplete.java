@@ -0,0 +1,322 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+/**
+ * Read-only Autocompletor served directly from a memory-mapped index file
+ * written by MappedAutocomplete.write. Opening the index parses nothing and
+ * builds nothing, so startup takes about as long as mapping the file, and
+ * processes that open the same index share its pages through the OS page
+ * cache. Queries use the same sorted-array binary search and range-max top-k
+ * as BinarySearchAutocomplete.
+ *
+ * Matching is exact: the index stores the terms as written, and prefixes are
+ * compared char by char, with no case or accent folding. An index does not
+ * match the way NormalizedAutocompletor over the same data file does; in
+ * particular AutocompleteGUI folds queries for data files but not for .acx
+ * indexes.
+ *
+ * File layout, all big-endian:
+ *
+ * <pre>
+ * int MAGIC, int VERSION, int n, int unused, long number of chars
+ * int[n + 1]   offset of each term in the char section, plus the end
+ * double[n]    weights
+ * int[2n]      RangeMaxIndex tree over the weights
+ * char[]       the terms, sorted, end to end
+ * </pre>
+ *
+ * To build an index from a data file: java MappedAutocomplete cities.txt
+ * cities.txt.acx
+ */
+public class MappedAutocomplete implements Autocompletor, IndexStats {
+
+	public static final int MAGIC = 0xac0c1dc5;
+	public static final int VERSION = 1;
+	public static final String SUFFIX = ".acx";
+	private static final int HEADER_BYTES = 24;
+
+	private final int mySize;
+	private final IntBuffer myOffsets;
+	private final DoubleBuffer myWeights;
+	private final CharBuffer myChars;
+	private final RangeMaxIndex myMaxIndex;
+	private final long myFileBytes;
+
+	/**
+	 * Map an index file written by write.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not an index file
+	 */
+	public MappedAutocomplete(File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+		if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException(file + " is not an autocomplete index");
+		}
+		mySize = buffer.getInt(8);
+		long chars = buffer.getLong(16);
+		// counts the file cannot hold would overflow the section sizes below
+		if (mySize < 0 || chars < 0 || mySize > buffer.limit() || chars > buffer.limit()) {
+			throw new IOException(file + " has a corrupt header");
+		}
+		long pos = HEADER_BYTES;
+		myOffsets = slice(buffer, pos, 4L * (mySize + 1)).asIntBuffer();
+		pos += 4L * (mySize + 1);
+		myWeights = slice(buffer, pos, 8L * mySize).asDoubleBuffer();
+		pos += 8L * mySize;
+		int treeSize = RangeMaxIndex.treeSize(mySize);
+		IntBuffer tree = slice(buffer, pos, 4L * treeSize).asIntBuffer();
+		pos += 4L * treeSize;
+		myChars = slice(buffer, pos, 2 * chars).asCharBuffer();
+		myMaxIndex = new RangeMaxIndex(myWeights, tree);
+		myFileBytes = buffer.limit();
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, long pos, long length) throws IOException {
+		if (pos + length > buffer.limit()) {
+			throw new IOException("index file is truncated");
+		}
+		ByteBuffer dup = buffer.duplicate();
+		dup.position((int) pos);
+		dup.limit((int) (pos + length));
+		return dup.slice();
+	}
+
+	/**
+	 * Write an index of terms and weights to file, replacing it. These are the
+	 * same arguments every Autocompletor constructor takes, so an index can be
+	 * made from whatever data another implementation was built from.
+	 *
+	 * @throws NullPointerException
+	 *             if either array is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or any weight is negative
+	 */
+	public static void write(String[] terms, double[] weights, File file) throws IOException {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		int n = terms.length;
+		Term[] sorted = new Term[n];
+		long chars = 0;
+		for (int i = 0; i < n; i++) {
+			sorted[i] = new Term(terms[i], weights[i]);
+			chars += terms[i].length();
+		}
+		Arrays.sort(sorted);
+		double[] sortedWeights = new double[n];
+		for (int i = 0; i < n; i++) {
+			sortedWeights[i] = sorted[i].getWeight();
+		}
+		RangeMaxIndex index = new RangeMaxIndex(sortedWeights);
+		long size = HEADER_BYTES + 4L * (n + 1) + 8L * n + 4L * RangeMaxIndex.treeSize(n) + 2 * chars;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("index would be larger than 2GB");
+		}
+
+		file.delete();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			MappedByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(chars);
+			int offset = 0;
+			for (Term t : sorted) {
+				out.putInt(offset);
+				offset += t.getWord().length();
+			}
+			out.putInt(offset);
+			for (double w : sortedWeights) {
+				out.putDouble(w);
+			}
+			IntBuffer tree = out.asIntBuffer();
+			index.writeTree(tree);
+			out.position(out.position() + 4 * tree.position());
+			CharBuffer text = out.asCharBuffer();
+			for (Term t : sorted) {
+				text.put(t.getWord());
+			}
+			out.force();
+		}
+	}
+
+	/*
+	 * Compare prefix with the first prefix.length() chars of term i, as
+	 * BinarySearchAutocomplete.comparePrefix does.
+	 */
+	private int comparePrefix(String prefix, int i) {
+		int start = myOffsets.get(i);
+		int len = myOffsets.get(i + 1) - start;
+		for (int j = 0; j < prefix.length(); j++) {
+			if (j == len) {
+				return 1;
+			}
+			int diff = prefix.charAt(j) - myChars.get(start + j);
+			if (diff != 0) {
+				return diff;
+			}
+		}
+		return 0;
+	}
+
+	private int firstIndexOf(String prefix) {
+		int low = -1;
+		int high = mySize;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(prefix, mid) <= 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return high < mySize && comparePrefix(prefix, high) == 0 ? high : -1;
+	}
+
+	private int lastIndexOf(String prefix) {
+		int low = -1;
+		int high = mySize;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(prefix, mid) < 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return low >= 0 && comparePrefix(prefix, low) == 0 ? low : -1;
+	}
+
+	private String wordAt(int i) {
+		int start = myOffsets.get(i);
+		char[] word = new char[myOffsets.get(i + 1) - start];
+		for (int j = 0; j < word.length; j++) {
+			word[j] = myChars.get(start + j);
+		}
+		return new String(word);
+	}
+
+	/**
+	 * Number of terms in the index.
+	 */
+	public int size() {
+		return mySize;
+	}
+
+	/**
+	 * Same contract as BinarySearchAutocomplete.topMatches.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as topMatches, with weights read from the mapped weights.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		int first = firstIndexOf(prefix);
+		if (k <= 0 || first < 0) {
+			return ret;
+		}
+		int last = lastIndexOf(prefix);
+		QueryWork.add(last - first + 1);
+		for (int i : myMaxIndex.topIndices(first, last, k)) {
+			ret.add(new Term(wordAt(i), myWeights.get(i)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Same contract as BinarySearchAutocomplete.topMatch.
+	 *
+	 * @throws a
+	 *             NullPointerException if the prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		int first = firstIndexOf(prefix);
+		if (first < 0) {
+			return "";
+		}
+		return wordAt(myMaxIndex.argMax(first, lastIndexOf(prefix)));
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		int i = firstIndexOf(term);
+		if (i < 0 || myOffsets.get(i + 1) - myOffsets.get(i) != term.length()) {
+			return 0.0;
+		}
+		return myWeights.get(i);
+	}
+
+	/**
+	 * Convert a weighted-term data file (first line N, then N lines of weight,
+	 * tab, term) to an index file.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: java MappedAutocomplete <data file> <index file>");
+			System.exit(1);
+		}
+		long start = System.nanoTime();
+		TermLoader data = TermLoader.load(new File(args[0]));
+		write(data.terms(), data.weights(), new File(args[1]));
+		System.out.println("Wrote " + data.terms().length + " terms to " + args[1] + " in " + (System.nanoTime() - start) / 1e9 + "s");
+	}
+
+	/**
+	 * Number of terms.
+	 */
+	public long nodeCount() {
+		return mySize;
+	}
+
+	/**
+	 * Size of the mapped index file. The index lives in those pages rather than
+	 * on the heap, but they are what it takes up in memory once touched.
+	 */
+	public long estimatedBytes() {
+		return myFileBytes;
+	}
+}
@@ -0,0 +1,342 @@
+import java.util.Arrays;
+
+/**
+ * Reusable holder for the results of one topMatches query, for callers that
+ * must not allocate per query, e.g.
+ *
+ * <pre>
+ * MatchBuffer results = new MatchBuffer(10); // once
+ * int n = auto.topMatches(prefix, results); // per keystroke
+ * for (int i = 0; i < n; i++) {
+ *     show(results.term(i), results.weight(i));
+ * }
+ * </pre>
+ *
+ * The capacity is the k of the query. A query overwrites the previous
+ * results. Besides the results, the buffer keeps the working storage of the
+ * Autocompletors that fill it without allocating (the best-first search
+ * queue of a trie, the range queue of a sorted index); it grows to the
+ * largest query seen and is then reused. A MatchBuffer is for one thread at
+ * a time.
+ *
+ * A buffer can also carry a budget for its queries: a number of candidates
+ * examined (trie nodes, terms) and a time. An Autocompletor that searches
+ * stops when the budget runs out, leaving the heaviest results found so far,
+ * and isComplete() is false; certain() says how many of them are known to
+ * be the true top matches. Autocompletors whose queries are already bounded
+ * ignore the budget and always complete.
+ */
+public class MatchBuffer {
+
+	private final String[] myTerms;
+	private final double[] myWeights;
+	private int mySize;
+
+	// max-heap of search states by priority, see push and pop
+	private Object[] myFrontier = new Object[16];
+	private double[] myPriorities = new double[16];
+	private int myFrontierSize;
+
+	private int[] myInts = new int[0];
+
+	private long myMaxExamined = Long.MAX_VALUE;
+	private long myMaxNanos = Long.MAX_VALUE;
+	private long myExamined, myStart;
+	private boolean myComplete = true;
+	private double myBound; // when incomplete, no result missed is heavier
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if capacity is negative
+	 */
+	public MatchBuffer(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		myTerms = new String[capacity];
+		myWeights = new double[capacity];
+	}
+
+	/**
+	 * The most results a query returns, its k.
+	 */
+	public int capacity() {
+		return myTerms.length;
+	}
+
+	/**
+	 * Number of results of the last query.
+	 */
+	public int size() {
+		return mySize;
+	}
+
+	/**
+	 * The i-th result, heaviest first.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 <= i < size()
+	 */
+	public String term(int i) {
+		check(i);
+		return myTerms[i];
+	}
+
+	/**
+	 * Weight of the i-th result.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 <= i < size()
+	 */
+	public double weight(int i) {
+		check(i);
+		return myWeights[i];
+	}
+
+	private void check(int i) {
+		if (i < 0 || i >= mySize) {
+			throw new IndexOutOfBoundsException("result " + i + " of " + mySize);
+		}
+	}
+
+	/**
+	 * Remove all results and forget the working storage's contents. Starts the
+	 * budget over; Autocompletors call this at the start of a query.
+	 */
+	public void clear() {
+		Arrays.fill(myTerms, 0, mySize, null);
+		mySize = 0;
+		clearFrontier();
+		myExamined = 0;
+		myComplete = true;
+		if (myMaxNanos != Long.MAX_VALUE) {
+			myStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Limit later queries to examining maxExamined candidates and to maxNanos
+	 * nanoseconds; Long.MAX_VALUE for no limit. The clock is read every 64
+	 * candidates, so a query can run a little past maxNanos.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if either limit is negative
+	 */
+	public void setBudget(long maxExamined, long maxNanos) {
+		if (maxExamined < 0 || maxNanos < 0) {
+			throw new IllegalArgumentException("negative budget");
+		}
+		myMaxExamined = maxExamined;
+		myMaxNanos = maxNanos;
+	}
+
+	/**
+	 * Whether the last query found its exact answer, rather than running out
+	 * of budget.
+	 */
+	public boolean isComplete() {
+		return myComplete;
+	}
+
+	/**
+	 * Number of leading results of the last query that are known to be among
+	 * its exact top matches: all of them if it completed, otherwise those at
+	 * least as heavy as anything it did not examine.
+	 */
+	public int certain() {
+		if (myComplete) {
+			return mySize;
+		}
+		int ret = 0;
+		while (ret < mySize && myWeights[ret] >= myBound) {
+			ret++;
+		}
+		return ret;
+	}
+
+	/**
+	 * Count one candidate examined, and return true if that was over budget.
+	 */
+	boolean spend() {
+		myExamined++;
+		if (myExamined > myMaxExamined) {
+			return true;
+		}
+		return myMaxNanos != Long.MAX_VALUE && (myExamined & 63) == 0 && System.nanoTime() - myStart > myMaxNanos;
+	}
+
+	/**
+	 * Mark the query stopped over budget, with nothing unexamined heavier
+	 * than bound.
+	 */
+	void stop(double bound) {
+		myComplete = false;
+		myBound = bound;
+	}
+
+	/**
+	 * Append a result; for Autocompletors that find results heaviest first.
+	 *
+	 * @throws IllegalStateException
+	 *             if the buffer is full
+	 */
+	public void add(String term, double weight) {
+		if (mySize == myTerms.length) {
+			throw new IllegalStateException("buffer full at " + mySize);
+		}
+		myTerms[mySize] = term;
+		myWeights[mySize++] = weight;
+	}
+
+	/**
+	 * Replace the i-th result's term, keeping its weight.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 <= i < size()
+	 */
+	void setTerm(int i, String term) {
+		check(i);
+		myTerms[i] = term;
+	}
+
+	/*
+	 * For results found in no particular order, the results are a min-heap by
+	 * weight between the first offer and sort: offer keeps the capacity()
+	 * heaviest, sort puts them heaviest first.
+	 */
+
+	/**
+	 * Weight a result must exceed to be kept once the buffer is full.
+	 */
+	double threshold() {
+		if (mySize < myTerms.length) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		return mySize == 0 ? Double.POSITIVE_INFINITY : myWeights[0];
+	}
+
+	/**
+	 * Keep term if it is among the capacity() heaviest offered.
+	 */
+	void offer(String term, double weight) {
+		if (mySize < myTerms.length) {
+			int c = mySize++;
+			while (c > 0 && weight < myWeights[(c - 1) / 2]) {
+				myTerms[c] = myTerms[(c - 1) / 2];
+				myWeights[c] = myWeights[(c - 1) / 2];
+				c = (c - 1) / 2;
+			}
+			myTerms[c] = term;
+			myWeights[c] = weight;
+		} else if (mySize > 0 && myWeights[0] < weight) {
+			siftDown(term, weight, mySize);
+		}
+	}
+
+	// put term at the root of the heap of the first size results
+	private void siftDown(String term, double weight, int size) {
+		int c = 0;
+		while (2 * c + 1 < size) {
+			int child = 2 * c + 1;
+			if (child + 1 < size && myWeights[child + 1] < myWeights[child]) {
+				child++;
+			}
+			if (weight <= myWeights[child]) {
+				break;
+			}
+			myTerms[c] = myTerms[child];
+			myWeights[c] = myWeights[child];
+			c = child;
+		}
+		myTerms[c] = term;
+		myWeights[c] = weight;
+	}
+
+	/**
+	 * Order the offered results heaviest first, and return how many there
+	 * are.
+	 */
+	int sort() {
+		for (int end = mySize - 1; end > 0; end--) {
+			String term = myTerms[end];
+			double weight = myWeights[end];
+			myTerms[end] = myTerms[0];
+			myWeights[end] = myWeights[0];
+			siftDown(term, weight, end);
+		}
+		clearFrontier();
+		return mySize;
+	}
+
+	/**
+	 * Add a search state to the frontier.
+	 */
+	void push(Object state, double priority) {
+		if (myFrontierSize == myFrontier.length) {
+			myFrontier = Arrays.copyOf(myFrontier, 2 * myFrontierSize);
+			myPriorities = Arrays.copyOf(myPriorities, 2 * myFrontierSize);
+		}
+		int c = myFrontierSize++;
+		while (c > 0 && myPriorities[(c - 1) / 2] < priority) {
+			myFrontier[c] = myFrontier[(c - 1) / 2];
+			myPriorities[c] = myPriorities[(c - 1) / 2];
+			c = (c - 1) / 2;
+		}
+		myFrontier[c] = state;
+		myPriorities[c] = priority;
+	}
+
+	boolean hasFrontier() {
+		return myFrontierSize > 0;
+	}
+
+	/**
+	 * Priority of the state pop would return.
+	 */
+	double topPriority() {
+		return myPriorities[0];
+	}
+
+	/**
+	 * Remove and return the state of highest priority.
+	 */
+	Object pop() {
+		Object ret = myFrontier[0];
+		Object state = myFrontier[--myFrontierSize];
+		double priority = myPriorities[myFrontierSize];
+		myFrontier[myFrontierSize] = null;
+		int c = 0;
+		while (2 * c + 1 < myFrontierSize) {
+			int child = 2 * c + 1;
+			if (child + 1 < myFrontierSize && myPriorities[child] < myPriorities[child + 1]) {
+				child++;
+			}
+			if (myPriorities[child] <= priority) {
+				break;
+			}
+			myFrontier[c] = myFrontier[child];
+			myPriorities[c] = myPriorities[child];
+			c = child;
+		}
+		if (myFrontierSize > 0) {
+			myFrontier[c] = state;
+			myPriorities[c] = priority;
+		}
+		return ret;
+	}
+
+	private void clearFrontier() {
+		Arrays.fill(myFrontier, 0, myFrontierSize, null);
+		myFrontierSize = 0;
+	}
+
+	/**
+	 * Scratch ints, at least length of them, contents undefined.
+	 */
+	int[] ints(int length) {
+		if (myInts.length < length) {
+			myInts = new int[Math.max(length, 2 * myInts.length)];
+		}
+		return myInts;
+	}
+}
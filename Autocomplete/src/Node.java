@@ -1,19 +1,24 @@
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Node in a general trie, each representing a character. Each node will keep
  * track of additional valid state if it is the last character of a word.
  * 
+ * Children are kept in a sorted char[] of keys with a parallel Node[] rather
+ * than a HashMap, so no Character is boxed and a leaf costs no extra objects.
+ * 
  * @author Austin Lu
  *
  */
 public class Node implements Comparable<Node> {
+	private static final char[] NO_KEYS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+
 	/**
 	 * The character this Node represents
 	 */
-	String myInfo;
+	char myInfo;
 
 	/**
 	 * Whether or not this node represents the last character in a word
@@ -38,13 +43,24 @@ public class Node implements Comparable<Node> {
 	 */
 	double mySubtreeMaxWeight;
 
-	Map<Character, Node> children;
+	/**
+	 * Sorted characters of the children; only the first mySize are in use.
+	 * myChildren[i] is the child for myKeys[i].
+	 */
+	char[] myKeys = NO_KEYS;
+	Node[] myChildren = NO_CHILDREN;
+	int mySize;
 	Node parent;
 
+	/**
+	 * Only non-null if the trie was built with a top-k cache. The heaviest
+	 * word Nodes in this subtrie, in descending weight order.
+	 */
+	Node[] myTopWords;
+
 	public Node(char character, Node parentNode, double subtreeMaximumWeight) {
-		myInfo = "" + character;
+		myInfo = character;
 		isWord = false;
-		children = new HashMap<Character, Node>();
 		parent = parentNode;
 		mySubtreeMaxWeight = subtreeMaximumWeight;
 	}
@@ -77,7 +93,74 @@ public class Node implements Comparable<Node> {
 	 * Returns null if key is not a valid child.
 	 */
 	Node getChild(char ch) {
-		return children.get(ch);
+		int index = indexOf(ch);
+		if (index < 0) {
+			return null;
+		}
+		return myChildren[index];
+	}
+
+	/**
+	 * Add child as the Node for ch, replacing any existing child for ch.
+	 */
+	void putChild(char ch, Node child) {
+		int index = indexOf(ch);
+		if (index >= 0) {
+			myChildren[index] = child;
+			return;
+		}
+		index = -(index + 1);
+		if (mySize == myKeys.length) {
+			int capacity = Math.max(2, mySize + (mySize >> 1)); // grow by half
+			myKeys = Arrays.copyOf(myKeys, capacity);
+			myChildren = Arrays.copyOf(myChildren, capacity);
+		}
+		System.arraycopy(myKeys, index, myKeys, index + 1, mySize - index);
+		System.arraycopy(myChildren, index, myChildren, index + 1, mySize - index);
+		myKeys[index] = ch;
+		myChildren[index] = child;
+		mySize++;
+	}
+
+	/**
+	 * Number of children of this Node.
+	 */
+	int childCount() {
+		return mySize;
+	}
+
+	/**
+	 * The i-th child in character order, 0 <= i < childCount().
+	 */
+	Node childAt(int i) {
+		return myChildren[i];
+	}
+
+	/**
+	 * Shrink the child arrays to exactly childCount() entries, throughout this
+	 * subtrie. Call once the trie is fully built.
+	 */
+	void trim() {
+		if (mySize == 0) {
+			myKeys = NO_KEYS;
+			myChildren = NO_CHILDREN;
+			return;
+		}
+		if (mySize != myKeys.length) {
+			myKeys = Arrays.copyOf(myKeys, mySize);
+			myChildren = Arrays.copyOf(myChildren, mySize);
+		}
+		for (int i = 0; i < mySize; i++) {
+			myChildren[i].trim();
+		}
+	}
+
+	/*
+	 * Binary search of the used part of myKeys; same contract as
+	 * Arrays.binarySearch, i.e. -(insertion point) - 1 when ch is absent.
+	 */
+	private int indexOf(char ch) {
+		return Arrays.binarySearch(myKeys, 0, mySize, ch);
 	}
 
 	@Override
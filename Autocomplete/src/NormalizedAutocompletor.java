@@ -0,0 +1,226 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.function.BiFunction;
+
+/**
+ * Autocompletor that matches terms by a normalized key, e.g.
+ *
+ * <pre>
+ * Autocompletor auto = new NormalizedAutocompletor(terms, weights, TermNormalizer.FOLD, TrieAutocomplete::new);
+ * auto.topMatches("sao", 5); // "Sao Paulo" with its accent, ...
+ * </pre>
+ *
+ * The terms are normalized once, here, and any Autocompletor is built over
+ * the keys; the display strings are kept beside them and substituted into
+ * every result. Each query is normalized once before it is passed on. A
+ * term that is its own key, such as a lower-case ASCII term under FOLD,
+ * costs nothing extra.
+ *
+ * Terms with the same key, such as "Dr" and "dr", become one entry with the
+ * larger weight, shown as the heavier term (the first given, on a tie).
+ * weightOf looks up the key, so it answers for any spelling of a term.
+ */
+public class NormalizedAutocompletor implements Autocompletor {
+
+	private final Autocompletor myAutocompletor;
+	private final TermNormalizer myNormalizer;
+
+	/**
+	 * Display strings of the keys that differ from them.
+	 */
+	private final HashMap<String, String> myDisplays = new HashMap<String, String>();
+
+	/**
+	 * Case- and accent-insensitive TrieAutocomplete.
+	 */
+	public NormalizedAutocompletor(String[] terms, double[] weights) {
+		this(terms, weights, TermNormalizer.FOLD, TrieAutocomplete::new);
+	}
+
+	/**
+	 * @param normalizer
+	 *            maps terms and queries to keys
+	 * @param factory
+	 *            builds the index from the keys and their weights
+	 * @throws NullPointerException
+	 *             if any argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or any weight is negative
+	 */
+	public NormalizedAutocompletor(String[] terms, double[] weights, TermNormalizer normalizer,
+			BiFunction<String[], double[], ? extends Autocompletor> factory) {
+		if (terms == null || weights == null || normalizer == null || factory == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		HashSet<String> words = new HashSet<String>();
+		// key -> index of the term shown for it
+		LinkedHashMap<String, Integer> shown = new LinkedHashMap<String, Integer>();
+		String[] keys = new String[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("Negative weight " + weights[i]);
+			}
+			if (!words.add(terms[i])) {
+				throw new IllegalArgumentException("Duplicate input terms");
+			}
+			keys[i] = normalizer.normalize(terms[i]);
+			Integer previous = shown.get(keys[i]);
+			if (previous == null || weights[previous] < weights[i]) {
+				shown.put(keys[i], i);
+			}
+		}
+		String[] keyTerms = new String[shown.size()];
+		double[] keyWeights = new double[shown.size()];
+		int j = 0;
+		for (int i : shown.values()) {
+			keyTerms[j] = keys[i];
+			keyWeights[j++] = weights[i];
+			if (!keys[i].equals(terms[i])) {
+				myDisplays.put(keys[i], terms[i]);
+			}
+		}
+		myNormalizer = normalizer;
+		myAutocompletor = factory.apply(keyTerms, keyWeights);
+	}
+
+	/**
+	 * The Autocompletor over the keys.
+	 */
+	public Autocompletor getAutocompletor() {
+		return myAutocompletor;
+	}
+
+	/**
+	 * The term shown for key.
+	 */
+	private String display(String key) {
+		String ret = myDisplays.get(key);
+		return ret == null ? key : ret;
+	}
+
+	private Iterable<Term> display(Iterable<Term> matches) {
+		LinkedList<Term> ret = new LinkedList<Term>();
+		for (Term t : matches) {
+			String shown = myDisplays.get(t.getWord());
+			ret.add(shown == null ? t : new Term(shown, t.getWeight()));
+		}
+		return ret;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (String key : myAutocompletor.topMatches(myNormalizer.normalize(prefix), k)) {
+			ret.add(display(key));
+		}
+		return ret;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		return display(myAutocompletor.topMatchesWithWeights(myNormalizer.normalize(prefix), k));
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		return display(myAutocompletor.topMatches(myNormalizer.normalize(prefix), results), results);
+	}
+
+	// replace the keys in results with their display strings
+	private int display(int count, MatchBuffer results) {
+		for (int i = 0; i < count; i++) {
+			String shown = myDisplays.get(results.term(i));
+			if (shown != null) {
+				results.setTerm(i, shown);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		String key = myNormalizer.normalize(prefix);
+		String ret = myAutocompletor.topMatch(key);
+		// "" is the answer when nothing matches
+		return ret.isEmpty() ? ret : display(ret);
+	}
+
+	/**
+	 * Return the weight of the entry for term's key. If there is none, return
+	 * 0.0
+	 *
+	 * @throws NullPointerException
+	 *             if term is null
+	 */
+	public double weightOf(String term) {
+		return myAutocompletor.weightOf(myNormalizer.normalize(term));
+	}
+
+	/**
+	 * A session of the index's own kind, fed the normalized text.
+	 */
+	@Override
+	public AutocompleteSession startSession() {
+		return new NormalizedSession();
+	}
+
+	private class NormalizedSession extends AutocompleteSession {
+		private final AutocompleteSession myKeySession = NormalizedAutocompletor.this.myAutocompletor.startSession();
+
+		NormalizedSession() {
+			super(NormalizedAutocompletor.this);
+		}
+
+		@Override
+		public void append(char ch) {
+			super.append(ch);
+			myKeySession.setText(myNormalizer.normalize(getPrefix()));
+		}
+
+		@Override
+		public void backspace() {
+			super.backspace();
+			myKeySession.setText(myNormalizer.normalize(getPrefix()));
+		}
+
+		/**
+		 * Normalizes text once, rather than once per changed character.
+		 */
+		@Override
+		public void setText(String text) {
+			myPrefix.setLength(0);
+			myPrefix.append(text);
+			myKeySession.setText(myNormalizer.normalize(text));
+		}
+
+		@Override
+		public Iterable<Term> topMatchesWithWeights(int k) {
+			return display(myKeySession.topMatchesWithWeights(k));
+		}
+
+		@Override
+		public int topMatches(MatchBuffer results) {
+			return display(myKeySession.topMatches(results), results);
+		}
+	}
+}
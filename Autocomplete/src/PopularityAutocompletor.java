@@ -0,0 +1,234 @@
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Autocompletor whose weights follow what users pick. Each term's weight is
+ * its base weight plus selectionWeight for every time it was selected, with
+ * selections fading exponentially: one halfLife old counts half.
+ *
+ * select is lock-free: it increments the term's counter in one of several
+ * stripes of counters, chosen by thread, so concurrent selections rarely
+ * touch the same cache line. Queries go to an immutable snapshot, an
+ * Autocompletor built by the factory. rebuild, run on a background thread
+ * by start or called directly, drains the counters, decays the scores and
+ * builds a new snapshot, then swaps it in with one volatile write; queries
+ * keep using the old snapshot until then and never wait for a rebuild.
+ */
+public class PopularityAutocompletor implements Autocompletor, AutoCloseable {
+
+	private final String[] myTerms;
+	private final double[] myBaseWeights;
+	private final HashMap<String, Integer> myIndex = new HashMap<String, Integer>();
+	private final double mySelectionWeight;
+	private final double myDecayPerNano;
+	private final BiFunction<String[], double[], ? extends Autocompletor> myFactory;
+	private final LongSupplier myClock;
+
+	// myStripes[s].get(i): selections of term i counted in stripe s since the last rebuild
+	private final AtomicLongArray[] myStripes;
+
+	// decayed selection count of every term as of myScoreTime; guarded by this
+	private final double[] myScores;
+	private long myScoreTime;
+
+	private volatile Autocompletor mySnapshot;
+	private ScheduledExecutorService myRebuilder;
+
+	/**
+	 * Popularity over TrieAutocomplete snapshots, with selections worth 1 and
+	 * a half-life of an hour. Call start to rebuild in the background.
+	 */
+	public PopularityAutocompletor(String[] terms, double[] weights) {
+		this(terms, weights, 1, TimeUnit.HOURS.toMillis(1), TrieAutocomplete::new);
+	}
+
+	/**
+	 * @param weights
+	 *            base weights, which do not decay
+	 * @param selectionWeight
+	 *            weight one fresh selection adds
+	 * @param halfLifeMillis
+	 *            age at which a selection counts half
+	 * @param factory
+	 *            builds each snapshot from the terms and their current weights
+	 * @throws NullPointerException
+	 *             if any argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates, any weight or selectionWeight is negative, or
+	 *             halfLifeMillis is not positive
+	 */
+	public PopularityAutocompletor(String[] terms, double[] weights, double selectionWeight, long halfLifeMillis,
+			BiFunction<String[], double[], ? extends Autocompletor> factory) {
+		this(terms, weights, selectionWeight, halfLifeMillis, factory, System::nanoTime);
+	}
+
+	/**
+	 * Same as above, with clock giving the time in nanoseconds, for tests.
+	 */
+	PopularityAutocompletor(String[] terms, double[] weights, double selectionWeight, long halfLifeMillis,
+			BiFunction<String[], double[], ? extends Autocompletor> factory, LongSupplier clock) {
+		if (terms == null || weights == null || factory == null || clock == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		if (selectionWeight < 0 || halfLifeMillis <= 0) {
+			throw new IllegalArgumentException("selectionWeight " + selectionWeight + " halfLifeMillis " + halfLifeMillis);
+		}
+		for (int i = 0; i < terms.length; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("Negative weight " + weights[i]);
+			}
+			if (myIndex.put(terms[i], i) != null) {
+				throw new IllegalArgumentException("Duplicate input terms");
+			}
+		}
+		myTerms = terms.clone();
+		myBaseWeights = weights.clone();
+		mySelectionWeight = selectionWeight;
+		myDecayPerNano = Math.log(2) / TimeUnit.MILLISECONDS.toNanos(halfLifeMillis);
+		myFactory = factory;
+		myClock = clock;
+		int stripes = Integer.highestOneBit(Math.min(16, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+		myStripes = new AtomicLongArray[stripes];
+		for (int s = 0; s < stripes; s++) {
+			myStripes[s] = new AtomicLongArray(terms.length);
+		}
+		myScores = new double[terms.length];
+		myScoreTime = clock.getAsLong();
+		mySnapshot = factory.apply(myTerms.clone(), myBaseWeights.clone());
+	}
+
+	/**
+	 * Record that term was selected. Counted in the weights from the next
+	 * rebuild on.
+	 *
+	 * @return false, and nothing is recorded, if term is not one of the terms
+	 * @throws NullPointerException
+	 *             if term is null
+	 */
+	public boolean select(String term) {
+		Integer i = myIndex.get(term);
+		if (i == null) {
+			return false;
+		}
+		long id = Thread.currentThread().getId();
+		myStripes[(int) ((id ^ (id >>> 16)) & (myStripes.length - 1))].incrementAndGet(i);
+		return true;
+	}
+
+	/**
+	 * Fold the selections since the last rebuild into the decayed scores,
+	 * build a snapshot with the resulting weights and start serving it.
+	 * Rebuilds run one at a time; queries are answered by the previous
+	 * snapshot meanwhile.
+	 */
+	public synchronized void rebuild() {
+		long now = myClock.getAsLong();
+		double decay = Math.exp(-myDecayPerNano * (now - myScoreTime));
+		myScoreTime = now;
+		double[] weights = new double[myTerms.length];
+		for (int i = 0; i < myTerms.length; i++) {
+			long selections = 0;
+			for (AtomicLongArray stripe : myStripes) {
+				if (stripe.get(i) != 0) {
+					selections += stripe.getAndSet(i, 0);
+				}
+			}
+			myScores[i] = myScores[i] * decay + selections;
+			weights[i] = myBaseWeights[i] + mySelectionWeight * myScores[i];
+		}
+		mySnapshot = myFactory.apply(myTerms.clone(), weights);
+	}
+
+	/**
+	 * Rebuild every periodMillis on a background daemon thread until close.
+	 * A rebuild that throws is reported and the previous snapshot is kept.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if periodMillis is not positive
+	 * @throws IllegalStateException
+	 *             if already started
+	 */
+	public synchronized void start(long periodMillis) {
+		if (periodMillis <= 0) {
+			throw new IllegalArgumentException("period " + periodMillis);
+		}
+		if (myRebuilder != null) {
+			throw new IllegalStateException("already started");
+		}
+		myRebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "PopularityAutocompletor rebuild");
+			t.setDaemon(true);
+			return t;
+		});
+		myRebuilder.scheduleWithFixedDelay(() -> {
+			try {
+				rebuild();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop background rebuilds, waiting for one in progress to finish.
+	 * Queries keep working on the last snapshot.
+	 */
+	@Override
+	public void close() {
+		ScheduledExecutorService rebuilder;
+		synchronized (this) {
+			rebuilder = myRebuilder;
+			myRebuilder = null;
+		}
+		if (rebuilder != null) {
+			rebuilder.shutdownNow();
+			try {
+				rebuilder.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * The snapshot queries are currently answered from.
+	 */
+	public Autocompletor getSnapshot() {
+		return mySnapshot;
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		return mySnapshot.topMatches(prefix, k);
+	}
+
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		return mySnapshot.topMatchesWithWeights(prefix, k);
+	}
+
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		return mySnapshot.topMatches(prefix, results);
+	}
+
+	public String topMatch(String prefix) {
+		return mySnapshot.topMatch(prefix);
+	}
+
+	/**
+	 * Return the weight of term as of the last rebuild. If term is not in the
+	 * dictionary, return 0.0
+	 */
+	public double weightOf(String term) {
+		return mySnapshot.weightOf(term);
+	}
+}
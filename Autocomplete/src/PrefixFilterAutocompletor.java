@@ -0,0 +1,190 @@
+import java.util.LinkedList;
+
+/**
+ * Autocompletor that answers "no matches" for dead-end prefixes without
+ * asking the Autocompletor it wraps. It holds a Bloom filter of every prefix,
+ * up to maxLength characters, of the terms the wrapped Autocompletor was
+ * built from. A prefix the filter has not seen has no completions, so the
+ * query returns at once; a prefix it has seen (or a false positive, about 1%
+ * at the default 10 bits per prefix) is passed on. Prefixes longer than
+ * maxLength are checked by their first maxLength characters.
+ *
+ * The filter is blocked: the bits for one prefix all lie in one 64-byte
+ * block, so a check is one hash over at most maxLength characters and one
+ * cache line, with no allocation.
+ */
+public class PrefixFilterAutocompletor implements Autocompletor {
+
+	public static final int DEFAULT_BITS_PER_PREFIX = 10;
+
+	private static final int BLOCK_LONGS = 8; // 512 bits
+	private static final int PROBES = 6;
+
+	private final Autocompletor myAutocompletor;
+	private final int myMaxLength;
+	private final long[] myBits;
+	private final int myBlocks;
+
+	/**
+	 * Filter autocompletor with DEFAULT_BITS_PER_PREFIX bits per prefix.
+	 *
+	 * @see #PrefixFilterAutocompletor(Autocompletor, String[], int, int)
+	 */
+	public PrefixFilterAutocompletor(Autocompletor autocompletor, String[] terms, int maxLength) {
+		this(autocompletor, terms, maxLength, DEFAULT_BITS_PER_PREFIX);
+	}
+
+	/**
+	 * @param autocompletor
+	 *            the Autocompletor to filter queries for
+	 * @param terms
+	 *            the terms autocompletor was built from
+	 * @param maxLength
+	 *            longest prefix to record, at least 1
+	 * @param bitsPerPrefix
+	 *            filter size; more bits, fewer false positives
+	 * @throws NullPointerException
+	 *             if autocompletor or terms is null
+	 * @throws IllegalArgumentException
+	 *             if maxLength or bitsPerPrefix is less than 1
+	 */
+	public PrefixFilterAutocompletor(Autocompletor autocompletor, String[] terms, int maxLength, int bitsPerPrefix) {
+		if (autocompletor == null || terms == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (maxLength < 1 || bitsPerPrefix < 1) {
+			throw new IllegalArgumentException("maxLength and bitsPerPrefix must be positive");
+		}
+		myAutocompletor = autocompletor;
+		myMaxLength = maxLength;
+		long prefixes = 0;
+		for (String term : terms) {
+			prefixes += Math.min(term.length(), maxLength);
+		}
+		long blocks = (prefixes * bitsPerPrefix + 64 * BLOCK_LONGS - 1) / (64 * BLOCK_LONGS);
+		if (blocks * BLOCK_LONGS > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("filter would be too large");
+		}
+		myBlocks = (int) Math.max(blocks, 1);
+		myBits = new long[myBlocks * BLOCK_LONGS];
+		for (String term : terms) {
+			long h = SEED;
+			for (int i = 0; i < Math.min(term.length(), maxLength); i++) {
+				h = step(h, term.charAt(i));
+				add(finish(h));
+			}
+		}
+	}
+
+	private static final long SEED = 0xcbf29ce484222325L;
+
+	// FNV-1a over the chars, finished with the MurmurHash3 mixer
+	private static long step(long h, char ch) {
+		return (h ^ ch) * 0x100000001b3L;
+	}
+
+	private static long finish(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private int block(long hash) {
+		return (int) (((hash >>> 32) * myBlocks) >>> 32) * BLOCK_LONGS;
+	}
+
+	private void add(long hash) {
+		int block = block(hash);
+		long bits = hash * 0x9e3779b97f4a7c15L;
+		for (int p = 0; p < PROBES; p++, bits >>>= 9) {
+			int bit = (int) (bits & 511);
+			myBits[block + (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * False if no term starts with prefix. True if some term may; always true
+	 * for the empty prefix.
+	 */
+	public boolean mightHavePrefix(String prefix) {
+		int length = Math.min(prefix.length(), myMaxLength);
+		if (length == 0) {
+			return true;
+		}
+		long h = SEED;
+		for (int i = 0; i < length; i++) {
+			h = step(h, prefix.charAt(i));
+		}
+		long hash = finish(h);
+		int block = block(hash);
+		long bits = hash * 0x9e3779b97f4a7c15L;
+		for (int p = 0; p < PROBES; p++, bits >>>= 9) {
+			int bit = (int) (bits & 511);
+			if ((myBits[block + (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		if (!mightHavePrefix(prefix)) {
+			return new LinkedList<String>();
+		}
+		return myAutocompletor.topMatches(prefix, k);
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (!mightHavePrefix(prefix)) {
+			return new LinkedList<Term>();
+		}
+		return myAutocompletor.topMatchesWithWeights(prefix, k);
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		if (!mightHavePrefix(prefix)) {
+			results.clear();
+			return 0;
+		}
+		return myAutocompletor.topMatches(prefix, results);
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (!mightHavePrefix(prefix)) {
+			return "";
+		}
+		return myAutocompletor.topMatch(prefix);
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		if (!mightHavePrefix(term)) {
+			return 0.0;
+		}
+		return myAutocompletor.weightOf(term);
+	}
+}
@@ -0,0 +1,36 @@
+/**
+ * Per-thread count of the candidates a query examined: trie nodes taken off
+ * the search queue, entries in the matching range of a sorted index, or terms
+ * scanned by brute force. Autocompletors report their count once at the end
+ * of a query with add; InstrumentedAutocompletor reads it with take.
+ *
+ * Until an InstrumentedAutocompletor is created, add is a single volatile read.
+ */
+public final class QueryWork {
+
+	static volatile boolean ourEnabled;
+
+	private static final ThreadLocal<long[]> ourCount = ThreadLocal.withInitial(() -> new long[1]);
+
+	private QueryWork() {
+	}
+
+	/**
+	 * Add n to the current thread's count.
+	 */
+	public static void add(long n) {
+		if (ourEnabled) {
+			ourCount.get()[0] += n;
+		}
+	}
+
+	/**
+	 * Return the current thread's count and set it to 0.
+	 */
+	static long take() {
+		long[] count = ourCount.get();
+		long ret = count[0];
+		count[0] = 0;
+		return ret;
+	}
+}
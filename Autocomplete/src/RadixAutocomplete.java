@@ -0,0 +1,337 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Path-compressed (radix/Patricia) trie implementation of Autocompletor. A
+ * chain of single-child nodes in TrieAutocomplete becomes one node here whose
+ * edge label is a slice of a shared char[] holding every term, so long unique
+ * suffixes cost one node rather than one per character. Queries use the same
+ * best-first search over mySubtreeMaxWeight as TrieAutocomplete.
+ */
+public class RadixAutocomplete implements Autocompletor, IndexStats {
+
+	/**
+	 * All terms laid end to end; edge labels index into this array.
+	 */
+	protected char[] myArena;
+
+	/**
+	 * Root of the trie, its edge label is empty.
+	 */
+	protected RadixNode myRoot;
+
+	/**
+	 * Node of the radix trie. The edge into the node is labeled
+	 * myArena[myStart, myStart + myLength).
+	 */
+	static class RadixNode {
+		private static final char[] NO_KEYS = new char[0];
+		private static final RadixNode[] NO_CHILDREN = new RadixNode[0];
+
+		int myStart, myLength;
+		String myWord;
+		double myWeight = -1;
+		double mySubtreeMaxWeight;
+
+		/**
+		 * Sorted first characters of the child edges and the children, in the
+		 * same layout as Node.
+		 */
+		char[] myKeys = NO_KEYS;
+		RadixNode[] myChildren = NO_CHILDREN;
+		int mySize;
+
+		RadixNode(int start, int length, double subtreeMaximumWeight) {
+			myStart = start;
+			myLength = length;
+			mySubtreeMaxWeight = subtreeMaximumWeight;
+		}
+
+		boolean isWord() {
+			return myWord != null;
+		}
+
+		RadixNode getChild(char ch) {
+			int index = Arrays.binarySearch(myKeys, 0, mySize, ch);
+			return index < 0 ? null : myChildren[index];
+		}
+
+		void putChild(char ch, RadixNode child) {
+			int index = Arrays.binarySearch(myKeys, 0, mySize, ch);
+			if (index >= 0) {
+				myChildren[index] = child;
+				return;
+			}
+			index = -(index + 1);
+			if (mySize == myKeys.length) {
+				int capacity = Math.max(2, mySize + (mySize >> 1));
+				myKeys = Arrays.copyOf(myKeys, capacity);
+				myChildren = Arrays.copyOf(myChildren, capacity);
+			}
+			System.arraycopy(myKeys, index, myKeys, index + 1, mySize - index);
+			System.arraycopy(myChildren, index, myChildren, index + 1, mySize - index);
+			myKeys[index] = ch;
+			myChildren[index] = child;
+			mySize++;
+		}
+
+		void trim() {
+			if (mySize != myKeys.length) {
+				myKeys = mySize == 0 ? NO_KEYS : Arrays.copyOf(myKeys, mySize);
+				myChildren = mySize == 0 ? NO_CHILDREN : Arrays.copyOf(myChildren, mySize);
+			}
+			for (int i = 0; i < mySize; i++) {
+				myChildren[i].trim();
+			}
+		}
+	}
+
+	/**
+	 * Build the radix trie for the given terms.
+	 *
+	 * @param terms
+	 *            - The words we will autocomplete from
+	 * @param weights
+	 *            - Their weights, such that terms[i] has weight weights[i].
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or any weight is negative
+	 */
+	public RadixAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		int total = 0;
+		for (String t : terms) {
+			total += t.length();
+		}
+		myArena = new char[total];
+		myRoot = new RadixNode(0, 0, 0);
+		int offset = 0;
+		for (int i = 0; i < terms.length; i++) {
+			terms[i].getChars(0, terms[i].length(), myArena, offset);
+			add(terms[i], offset, weights[i]);
+			offset += terms[i].length();
+		}
+		myRoot.trim();
+	}
+
+	/**
+	 * Add word, whose characters are already at myArena[start...], splitting
+	 * an edge where word leaves it part way.
+	 */
+	private void add(String word, int start, double weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("weight is negative");
+		}
+		RadixNode current = myRoot;
+		int i = 0;
+		while (true) {
+			current.mySubtreeMaxWeight = Math.max(weight, current.mySubtreeMaxWeight);
+			if (i == word.length()) {
+				current.myWord = word;
+				current.myWeight = weight;
+				return;
+			}
+			char ch = word.charAt(i);
+			RadixNode child = current.getChild(ch);
+			if (child == null) { // rest of word is a new leaf edge
+				RadixNode leaf = new RadixNode(start + i, word.length() - i, weight);
+				leaf.myWord = word;
+				leaf.myWeight = weight;
+				current.putChild(ch, leaf);
+				return;
+			}
+			int common = 0;
+			while (common < child.myLength && i + common < word.length()
+					&& myArena[child.myStart + common] == word.charAt(i + common)) {
+				common++;
+			}
+			if (common < child.myLength) { // split the edge after common chars
+				RadixNode mid = new RadixNode(child.myStart, common, child.mySubtreeMaxWeight);
+				child.myStart += common;
+				child.myLength -= common;
+				mid.putChild(myArena[child.myStart], child);
+				current.putChild(ch, mid);
+				child = mid;
+			}
+			current = child;
+			i += common;
+		}
+	}
+
+	/**
+	 * Return the node whose subtrie holds exactly the words starting with
+	 * prefix, or null if there are none. The edge into the returned node may
+	 * extend past the end of prefix.
+	 */
+	protected RadixNode find(String prefix) {
+		RadixNode current = myRoot;
+		int i = 0;
+		while (i < prefix.length()) {
+			current = current.getChild(prefix.charAt(i));
+			if (current == null) {
+				return null;
+			}
+			int n = Math.min(current.myLength, prefix.length() - i);
+			for (int j = 1; j < n; j++) { // first char matched by getChild
+				if (myArena[current.myStart + j] != prefix.charAt(i + j)) {
+					return null;
+				}
+			}
+			i += current.myLength;
+		}
+		return current;
+	}
+
+	/**
+	 * Same contract as TrieAutocomplete.topMatches.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as topMatches, but the words come with their weights.
+	 *
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (k <= 0) {
+			return ret;
+		}
+		RadixNode start = find(prefix);
+		if (start == null) {
+			return ret;
+		}
+		PriorityQueue<RadixNode> nodePQ = new PriorityQueue<RadixNode>(
+				(a, b) -> Double.compare(b.mySubtreeMaxWeight, a.mySubtreeMaxWeight));
+		PriorityQueue<Term> tPQ = new PriorityQueue<Term>(k, new Term.WeightOrder());
+		nodePQ.add(start);
+		int visited = 0;
+		while (nodePQ.size() > 0) {
+			if (tPQ.size() >= k && tPQ.peek().getWeight() > nodePQ.peek().mySubtreeMaxWeight) {
+				break; // nothing left can beat what we have
+			}
+			RadixNode top = nodePQ.remove();
+			visited++;
+			if (top.isWord()) {
+				tPQ.add(new Term(top.myWord, top.myWeight));
+				if (tPQ.size() > k) {
+					tPQ.remove();
+				}
+			}
+			for (int c = 0; c < top.mySize; c++) {
+				nodePQ.add(top.myChildren[c]);
+			}
+		}
+		QueryWork.add(visited);
+		while (tPQ.size() > 0) {
+			ret.addFirst(tPQ.remove());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same contract as TrieAutocomplete.topMatch.
+	 *
+	 * @throws a
+	 *             NullPointerException if the prefix is null
+	 */
+	public String topMatch(String prefix) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		RadixNode current = find(prefix);
+		if (current == null) {
+			return "";
+		}
+		while (current.mySubtreeMaxWeight != current.myWeight) { // follow the max down
+			RadixNode next = current;
+			for (int c = 0; c < current.mySize; c++) {
+				if (current.myChildren[c].mySubtreeMaxWeight == current.mySubtreeMaxWeight) {
+					next = current.myChildren[c];
+					break;
+				}
+			}
+			if (next == current) { // empty trie
+				return "";
+			}
+			current = next;
+		}
+		return current.myWord;
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		RadixNode current = find(term);
+		if (current == null || !current.isWord() || !current.myWord.equals(term)) {
+			return 0.0;
+		}
+		return current.myWeight;
+	}
+
+	/**
+	 * Number of nodes in the trie, including the root.
+	 */
+	public long countNodes() {
+		return countNodes(myRoot);
+	}
+
+	public long nodeCount() {
+		return countNodes();
+	}
+
+	public long estimatedBytes() {
+		return IndexStats.arrayBytes(myArena.length, 2) + estimatedBytes(myRoot);
+	}
+
+	private static long estimatedBytes(RadixNode node) {
+		// 3 ints, 3 references, 2 doubles
+		long ret = IndexStats.objectBytes(40) + IndexStats.arrayBytes(node.myKeys.length, 2)
+				+ IndexStats.arrayBytes(node.myChildren.length, 4);
+		if (node.isWord()) {
+			ret += IndexStats.stringBytes(node.myWord);
+		}
+		for (int c = 0; c < node.mySize; c++) {
+			ret += estimatedBytes(node.myChildren[c]);
+		}
+		return ret;
+	}
+
+	private static long countNodes(RadixNode root) {
+		long result = 1;
+		for (int c = 0; c < root.mySize; c++) {
+			result += countNodes(root.myChildren[c]);
+		}
+		return result;
+	}
+}
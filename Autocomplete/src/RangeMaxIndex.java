@@ -0,0 +1,248 @@
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+
+/**
+ * Answers "which index in [lo, hi] has the largest value" over a fixed
+ * array of values, using an iterative segment tree of indices (2n ints). From
+ * that, topIndices finds the k largest values in any range in O(k log k + k
+ * log n) by repeatedly splitting the range around its maximum, rather than
+ * scanning the whole range.
+ * 
+ * Values and tree are held in buffers so an index saved with writeTree can be
+ * served straight from a memory-mapped file (see MappedAutocomplete).
+ */
+public class RangeMaxIndex {
+
+	private final DoubleBuffer myValues;
+
+	/**
+	 * myTree[n + i] == i; myTree[p] is the index of the larger value of its
+	 * two children. Index -1 stands for an empty slot.
+	 */
+	private final IntBuffer myTree;
+	private final int mySize;
+
+	/**
+	 * Build the index. values is not copied and must not be changed afterwards.
+	 */
+	public RangeMaxIndex(double[] values) {
+		myValues = DoubleBuffer.wrap(values);
+		mySize = values.length;
+		myTree = IntBuffer.allocate(treeSize(mySize));
+		myTree.put(0, -1);
+		for (int i = 0; i < mySize; i++) {
+			myTree.put(mySize + i, i);
+		}
+		for (int p = mySize - 1; p > 0; p--) {
+			myTree.put(p, better(myTree.get(2 * p), myTree.get(2 * p + 1)));
+		}
+	}
+
+	/**
+	 * Use an index built earlier, whose tree was saved with writeTree. Neither
+	 * buffer is copied; reads use absolute gets only.
+	 * 
+	 * @param values
+	 *            the same values the saved index was built from
+	 * @param tree
+	 *            treeSize(values.limit()) ints saved by writeTree
+	 */
+	public RangeMaxIndex(DoubleBuffer values, IntBuffer tree) {
+		myValues = values;
+		mySize = values.limit();
+		myTree = tree;
+	}
+
+	/**
+	 * Number of ints in the tree of an index over size values.
+	 */
+	public static int treeSize(int size) {
+		return 2 * Math.max(size, 1);
+	}
+
+	/**
+	 * Copy the tree, treeSize(size) ints, to out.
+	 */
+	public void writeTree(IntBuffer out) {
+		for (int p = 0; p < myTree.limit(); p++) {
+			out.put(myTree.get(p));
+		}
+	}
+
+	/**
+	 * Return the index of the largest value in [lo, hi], the leftmost one if
+	 * several are equal, or -1 if the range is empty.
+	 */
+	public int argMax(int lo, int hi) {
+		if (lo > hi || lo < 0 || hi >= mySize) {
+			return -1;
+		}
+		int best = -1;
+		for (int l = lo + mySize, r = hi + mySize + 1; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) {
+				best = better(best, myTree.get(l++));
+			}
+			if ((r & 1) == 1) {
+				best = better(best, myTree.get(--r));
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Return the indices of the k largest values in [lo, hi] in descending
+	 * order of value. Fewer than k are returned if the range is smaller.
+	 */
+	public int[] topIndices(int lo, int hi, int k) {
+		if (lo > hi || k <= 0) {
+			return new int[0];
+		}
+		int[] ret = new int[Math.min(k, hi - lo + 1)];
+		PrimitiveIterator.OfInt it = descending(lo, hi);
+		for (int n = 0; n < ret.length; n++) {
+			ret[n] = it.nextInt();
+		}
+		return ret;
+	}
+
+	/**
+	 * Length of the work array topIndices needs for k.
+	 */
+	public static int workSize(int k) {
+		return k + 3 * (k + 1);
+	}
+
+	/**
+	 * Same as topIndices(lo, hi, k), but the indices are left in work[0, n),
+	 * where n is returned, and nothing is allocated. The rest of work holds
+	 * the queue of ranges.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if work is shorter than workSize(k)
+	 */
+	public int topIndices(int lo, int hi, int k, int[] work) {
+		if (work.length < workSize(k)) {
+			throw new IllegalArgumentException("work array too short: " + work.length);
+		}
+		int max = argMax(lo, hi);
+		if (k <= 0 || max < 0) {
+			return 0;
+		}
+		// max-heap of {lo, hi, argMax(lo, hi)} triples starting at work[k]
+		int ranges = 0;
+		ranges = pushRange(work, k, ranges, lo, hi, max);
+		int n = 0;
+		while (n < k && ranges > 0) {
+			int rlo = work[k], rhi = work[k + 1], m = work[k + 2];
+			ranges = popRange(work, k, ranges);
+			work[n++] = m;
+			if (rlo < m) {
+				ranges = pushRange(work, k, ranges, rlo, m - 1, argMax(rlo, m - 1));
+			}
+			if (m < rhi) {
+				ranges = pushRange(work, k, ranges, m + 1, rhi, argMax(m + 1, rhi));
+			}
+		}
+		return n;
+	}
+
+	// whether the range at triple i of the heap at base comes before the one at j
+	private boolean before(int[] work, int base, int i, int j) {
+		return better(work[base + 3 * i + 2], work[base + 3 * j + 2]) == work[base + 3 * i + 2];
+	}
+
+	private static void swapRange(int[] work, int base, int i, int j) {
+		for (int f = 0; f < 3; f++) {
+			int t = work[base + 3 * i + f];
+			work[base + 3 * i + f] = work[base + 3 * j + f];
+			work[base + 3 * j + f] = t;
+		}
+	}
+
+	private int pushRange(int[] work, int base, int size, int lo, int hi, int max) {
+		int c = size;
+		work[base + 3 * c] = lo;
+		work[base + 3 * c + 1] = hi;
+		work[base + 3 * c + 2] = max;
+		while (c > 0 && before(work, base, c, (c - 1) / 2)) {
+			swapRange(work, base, c, (c - 1) / 2);
+			c = (c - 1) / 2;
+		}
+		return size + 1;
+	}
+
+	private int popRange(int[] work, int base, int size) {
+		size--;
+		swapRange(work, base, 0, size);
+		int c = 0;
+		while (2 * c + 1 < size) {
+			int child = 2 * c + 1;
+			if (child + 1 < size && before(work, base, child + 1, child)) {
+				child++;
+			}
+			if (!before(work, base, child, c)) {
+				break;
+			}
+			swapRange(work, base, c, child);
+			c = child;
+		}
+		return size;
+	}
+
+	/**
+	 * The indices in [lo, hi] in descending order of value, found as they are
+	 * asked for, so a caller that stops after m of them does O(m log m + m log
+	 * n) work however large the range.
+	 */
+	public PrimitiveIterator.OfInt descending(int lo, int hi) {
+		// each entry is {lo, hi, argMax(lo, hi)} of a range not yet reported;
+		// equal values come out lowest index first, as in topIndices
+		PriorityQueue<int[]> ranges = new PriorityQueue<int[]>((a, b) -> {
+			int ret = Double.compare(myValues.get(b[2]), myValues.get(a[2]));
+			return ret != 0 ? ret : Integer.compare(a[2], b[2]);
+		});
+		int max = argMax(lo, hi);
+		if (max >= 0) {
+			ranges.add(new int[] { lo, hi, max });
+		}
+		return new PrimitiveIterator.OfInt() {
+			public boolean hasNext() {
+				return !ranges.isEmpty();
+			}
+
+			public int nextInt() {
+				if (ranges.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				int[] range = ranges.remove();
+				int m = range[2];
+				if (range[0] < m) {
+					ranges.add(new int[] { range[0], m - 1, argMax(range[0], m - 1) });
+				}
+				if (m < range[1]) {
+					ranges.add(new int[] { m + 1, range[1], argMax(m + 1, range[1]) });
+				}
+				return m;
+			}
+		};
+	}
+
+	// larger of the values at two indices, ties to the smaller index
+	private int better(int i, int j) {
+		if (i < 0) {
+			return j;
+		}
+		if (j < 0) {
+			return i;
+		}
+		double vi = myValues.get(i);
+		double vj = myValues.get(j);
+		if (vi > vj || (vi == vj && i < j)) {
+			return i;
+		}
+		return j;
+	}
+}
@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Autocompletor that splits the terms into shards, each its own
+ * Autocompletor, built in parallel. A query goes to every shard that can hold
+ * a match and the shards' top k lists are merged with a bounded heap.
+ *
+ * With Partition.HASH every shard holds about 1/N of the matches of any
+ * prefix, so every query goes to all shards; short prefixes, whose searches
+ * are the slow ones, query the shards concurrently on the common fork-join
+ * pool. With Partition.FIRST_CHAR each first character lives in one shard,
+ * so only the empty prefix goes to more than one shard; shards are balanced
+ * by assigning the most common first characters first.
+ */
+public class ShardedAutocomplete implements Autocompletor, IndexStats {
+
+	public enum Partition {
+		HASH, FIRST_CHAR
+	}
+
+	/**
+	 * Prefixes shorter than this query the shards in parallel; longer ones
+	 * are cheap enough that handing them to other threads costs more than it
+	 * saves.
+	 */
+	private static final int PARALLEL_PREFIX = 3;
+
+	private final Autocompletor[] myShards;
+	private final Partition myPartition;
+
+	/**
+	 * For FIRST_CHAR, the sorted first characters of the terms and the shard
+	 * holding each. The empty term, if any, is in shard 0.
+	 */
+	private char[] myFirstChars;
+	private int[] myFirstCharShards;
+
+	/**
+	 * Hash-partitioned TrieAutocomplete shards, one per available processor.
+	 */
+	public ShardedAutocomplete(String[] terms, double[] weights) {
+		this(terms, weights, Runtime.getRuntime().availableProcessors(), Partition.HASH, TrieAutocomplete::new);
+	}
+
+	/**
+	 * @param shards
+	 *            number of shards, at least 1
+	 * @param factory
+	 *            builds one shard from its terms and weights
+	 * @throws NullPointerException
+	 *             if any argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, shards is less
+	 *             than 1, or a shard's constructor rejects its terms (e.g.
+	 *             duplicates or negative weights)
+	 */
+	public ShardedAutocomplete(String[] terms, double[] weights, int shards, Partition partition,
+			BiFunction<String[], double[], Autocompletor> factory) {
+		if (terms == null || weights == null || partition == null || factory == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		if (shards < 1) {
+			throw new IllegalArgumentException("need at least one shard, not " + shards);
+		}
+		myPartition = partition;
+		if (partition == Partition.FIRST_CHAR) {
+			assignFirstChars(terms, shards);
+		}
+
+		int[] shardOf = new int[terms.length];
+		int[] sizes = new int[shards];
+		for (int i = 0; i < terms.length; i++) {
+			shardOf[i] = shardOf(terms[i], shards);
+			sizes[shardOf[i]]++;
+		}
+		String[][] shardTerms = new String[shards][];
+		double[][] shardWeights = new double[shards][];
+		for (int s = 0; s < shards; s++) {
+			shardTerms[s] = new String[sizes[s]];
+			shardWeights[s] = new double[sizes[s]];
+			sizes[s] = 0;
+		}
+		for (int i = 0; i < terms.length; i++) {
+			int s = shardOf[i];
+			shardTerms[s][sizes[s]] = terms[i];
+			shardWeights[s][sizes[s]++] = weights[i];
+		}
+		myShards = IntStream.range(0, shards).parallel()
+				.mapToObj(s -> factory.apply(shardTerms[s], shardWeights[s])).toArray(Autocompletor[]::new);
+	}
+
+	// greedily give the most common first characters to the least loaded shard
+	private void assignFirstChars(String[] terms, int shards) {
+		TreeMap<Character, Integer> counts = new TreeMap<Character, Integer>();
+		for (String term : terms) {
+			if (term.length() > 0) {
+				counts.merge(term.charAt(0), 1, Integer::sum);
+			}
+		}
+		myFirstChars = new char[counts.size()];
+		myFirstCharShards = new int[counts.size()];
+		int n = 0;
+		for (char ch : counts.keySet()) {
+			myFirstChars[n++] = ch;
+		}
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> counts.get(myFirstChars[b]) - counts.get(myFirstChars[a]));
+		long[] loads = new long[shards];
+		for (int i : order) {
+			int least = 0;
+			for (int s = 1; s < shards; s++) {
+				if (loads[s] < loads[least]) {
+					least = s;
+				}
+			}
+			myFirstCharShards[i] = least;
+			loads[least] += counts.get(myFirstChars[i]);
+		}
+	}
+
+	/*
+	 * The shard that holds term or, for FIRST_CHAR, every term starting with
+	 * the first character of term; -1 if no shard does.
+	 */
+	private int shardOf(String term, int shards) {
+		if (myPartition == Partition.HASH) {
+			return Math.floorMod(term.hashCode(), shards);
+		}
+		if (term.length() == 0) {
+			return 0;
+		}
+		int index = Arrays.binarySearch(myFirstChars, term.charAt(0));
+		return index < 0 ? -1 : myFirstCharShards[index];
+	}
+
+	/**
+	 * Number of shards.
+	 */
+	public int shardCount() {
+		return myShards.length;
+	}
+
+	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		if (k <= 0) {
+			return new LinkedList<Term>();
+		}
+		if (myPartition == Partition.FIRST_CHAR && prefix.length() > 0) {
+			int shard = shardOf(prefix, myShards.length);
+			return shard < 0 ? new LinkedList<Term>() : myShards[shard].topMatchesWithWeights(prefix, k);
+		}
+		List<Iterable<Term>> results;
+		if (prefix.length() < PARALLEL_PREFIX && myShards.length > 1) {
+			// shards that run on pool threads count their work there, so each
+			// shard's count is taken where it ran and added on this thread
+			long[] work = new long[myShards.length];
+			results = IntStream.range(0, myShards.length).parallel().mapToObj(s -> {
+				long before = QueryWork.take(); // this thread's own count, if s runs here
+				Iterable<Term> ret = myShards[s].topMatchesWithWeights(prefix, k);
+				work[s] = QueryWork.take();
+				QueryWork.add(before);
+				return ret;
+			}).collect(Collectors.toList());
+			QueryWork.add(LongStream.of(work).sum());
+		} else {
+			results = new ArrayList<Iterable<Term>>(myShards.length);
+			for (Autocompletor shard : myShards) {
+				results.add(shard.topMatchesWithWeights(prefix, k));
+			}
+		}
+		return merge(results, k);
+	}
+
+	// the k heaviest of the shards' lists, heaviest first
+	private static LinkedList<Term> merge(List<Iterable<Term>> results, int k) {
+		PriorityQueue<Term> pq = new PriorityQueue<Term>(k, new Term.WeightOrder());
+		for (Iterable<Term> result : results) {
+			for (Term t : result) { // each list is heaviest first, so stop at the first that loses
+				if (pq.size() < k) {
+					pq.add(t);
+				} else if (pq.peek().getWeight() < t.getWeight()) {
+					pq.remove();
+					pq.add(t);
+				} else {
+					break;
+				}
+			}
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		while (pq.size() > 0) {
+			ret.addFirst(pq.remove());
+		}
+		return ret;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 */
+	public String topMatch(String prefix) {
+		for (Term t : topMatchesWithWeights(prefix, 1)) {
+			return t.getWord();
+		}
+		return "";
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		int shard = shardOf(term, myShards.length);
+		return shard < 0 ? 0.0 : myShards[shard].weightOf(term);
+	}
+
+	/**
+	 * Total over the shards, or -1 if they do not implement IndexStats.
+	 */
+	public long nodeCount() {
+		long ret = 0;
+		for (Autocompletor shard : myShards) {
+			if (!(shard instanceof IndexStats)) {
+				return -1;
+			}
+			ret += ((IndexStats) shard).nodeCount();
+		}
+		return ret;
+	}
+
+	public long estimatedBytes() {
+		long ret = IndexStats.arrayBytes(myShards.length, 4);
+		for (Autocompletor shard : myShards) {
+			if (!(shard instanceof IndexStats)) {
+				return -1;
+			}
+			ret += ((IndexStats) shard).estimatedBytes();
+		}
+		return ret;
+	}
+}
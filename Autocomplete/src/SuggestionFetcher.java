@@ -0,0 +1,232 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Answers an interface's suggestion requests on a background thread, so the
+ * thread that handles keystrokes never waits for the Autocompletor, e.g.
+ *
+ * <pre>
+ * fetcher = new SuggestionFetcher(auto, 10, this::show); // once
+ * fetcher.request(searchText.getText()); // per keystroke, on the EDT
+ * </pre>
+ *
+ * A request waits debounceMillis before it runs, and a newer request
+ * replaces it meanwhile, so a burst of keystrokes costs one query. Queries
+ * run one at a time through a single session, so typing narrows the
+ * previous search. A request made while an older query runs makes that
+ * query stale: it stops at the next node it examines (for Autocompletors
+ * that search a MatchBuffer, such as TrieAutocomplete; others finish) and
+ * its results are dropped. Every query is also limited to budgetMillis, after
+ * which the heaviest matches found so far are shown.
+ *
+ * Results are handed to the listener through the deliverer, by default
+ * SwingUtilities.invokeLater, and only if no newer request or cancel came
+ * first, so the listener never sees results older than ones it has seen.
+ */
+public class SuggestionFetcher implements AutoCloseable {
+
+	public static final long DEBOUNCE_MILLIS = 30;
+	public static final long BUDGET_MILLIS = 50;
+
+	/**
+	 * The results of one request, heaviest first.
+	 */
+	public static class Suggestions {
+		private final String myText;
+		private final String[] myTerms;
+		private final double[] myWeights;
+		private final boolean myComplete;
+
+		Suggestions(String text, MatchBuffer results) {
+			myText = text;
+			myTerms = new String[results.size()];
+			myWeights = new double[results.size()];
+			for (int i = 0; i < myTerms.length; i++) {
+				myTerms[i] = results.term(i);
+				myWeights[i] = results.weight(i);
+			}
+			myComplete = results.isComplete();
+		}
+
+		/**
+		 * The text that was requested.
+		 */
+		public String getText() {
+			return myText;
+		}
+
+		public int size() {
+			return myTerms.length;
+		}
+
+		/**
+		 * @throws IndexOutOfBoundsException
+		 *             unless 0 <= i < size()
+		 */
+		public String term(int i) {
+			return myTerms[i];
+		}
+
+		/**
+		 * @throws IndexOutOfBoundsException
+		 *             unless 0 <= i < size()
+		 */
+		public double weight(int i) {
+			return myWeights[i];
+		}
+
+		/**
+		 * Whether these are the exact top matches, rather than the best found
+		 * within the time budget.
+		 */
+		public boolean isComplete() {
+			return myComplete;
+		}
+	}
+
+	/*
+	 * A MatchBuffer whose queries also run out of budget once a newer request
+	 * is made.
+	 */
+	private class CancellableBuffer extends MatchBuffer {
+		private long myRequest;
+
+		CancellableBuffer(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		boolean spend() {
+			return super.spend() || myRequest != myGeneration.get();
+		}
+	}
+
+	private final Consumer<? super Suggestions> myListener;
+	private final Executor myDeliverer;
+	private final long myDebounceMillis;
+	private final ScheduledExecutorService myWorker;
+
+	// used on the worker thread only
+	private final AutocompleteSession mySession;
+	private final CancellableBuffer myResults;
+
+	// incremented by every request and cancel; a query or delivery for an
+	// older value is stale
+	private final AtomicLong myGeneration = new AtomicLong();
+	private ScheduledFuture<?> myPending; // guarded by this
+
+	/**
+	 * Fetch k suggestions at a time from auto with the default delay and
+	 * budget, delivering them on the Swing event dispatch thread.
+	 */
+	public SuggestionFetcher(Autocompletor auto, int k, Consumer<? super Suggestions> listener) {
+		this(auto, k, DEBOUNCE_MILLIS, BUDGET_MILLIS, listener, SwingUtilities::invokeLater);
+	}
+
+	/**
+	 * @param debounceMillis
+	 *            how long a request waits for a newer one before it runs
+	 * @param budgetMillis
+	 *            longest a query searches before settling for the best found
+	 * @param deliverer
+	 *            runs each delivery to the listener
+	 * @throws NullPointerException
+	 *             if auto, listener or deliverer is null
+	 * @throws IllegalArgumentException
+	 *             if k, debounceMillis or budgetMillis is negative
+	 */
+	public SuggestionFetcher(Autocompletor auto, int k, long debounceMillis, long budgetMillis,
+			Consumer<? super Suggestions> listener, Executor deliverer) {
+		if (auto == null || listener == null || deliverer == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (k < 0 || debounceMillis < 0 || budgetMillis < 0) {
+			throw new IllegalArgumentException("k " + k + " debounceMillis " + debounceMillis + " budgetMillis "
+					+ budgetMillis);
+		}
+		myListener = listener;
+		myDeliverer = deliverer;
+		myDebounceMillis = debounceMillis;
+		mySession = auto.startSession();
+		myResults = new CancellableBuffer(k);
+		myResults.setBudget(Long.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+		myWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "SuggestionFetcher");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Fetch the suggestions for text, replacing any earlier request.
+	 *
+	 * @throws NullPointerException
+	 *             if text is null
+	 */
+	public synchronized void request(String text) {
+		if (text == null) {
+			throw new NullPointerException("null text");
+		}
+		long generation = myGeneration.incrementAndGet();
+		if (myPending != null) {
+			myPending.cancel(false);
+		}
+		myPending = myWorker.schedule(() -> fetch(text, generation), myDebounceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Drop any request not yet delivered.
+	 */
+	public synchronized void cancel() {
+		myGeneration.incrementAndGet();
+		if (myPending != null) {
+			myPending.cancel(false);
+			myPending = null;
+		}
+	}
+
+	private void fetch(String text, long generation) {
+		if (generation != myGeneration.get()) {
+			return;
+		}
+		try {
+			myResults.myRequest = generation;
+			mySession.setText(text);
+			mySession.topMatches(myResults);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return;
+		}
+		if (generation != myGeneration.get()) {
+			return;
+		}
+		Suggestions suggestions = new Suggestions(text, myResults);
+		myDeliverer.execute(() -> {
+			if (generation == myGeneration.get()) {
+				myListener.accept(suggestions);
+			}
+		});
+	}
+
+	/**
+	 * Drop pending requests and stop the worker thread, waiting for a query
+	 * in progress to finish.
+	 */
+	@Override
+	public void close() {
+		cancel();
+		myWorker.shutdownNow();
+		try {
+			myWorker.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
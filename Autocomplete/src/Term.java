@@ -82,19 +82,17 @@ public class Term implements Comparable<Term> {
 		 *            - Two Terms whose words are being compared
 		 */
 		public int compare(Term v, Term w) {
-			String vComp = "";
-			String wComp = "";
-			if (v.myWord.length() < r) { //word too short
-				vComp = v.myWord; //use whole word
-			} else {
-				vComp = v.myWord.substring(0, r); //use selected part of word
+			int vLen = Math.min(v.myWord.length(), r); //use whole word if too short
+			int wLen = Math.min(w.myWord.length(), r);
+			int n = Math.min(vLen, wLen);
+			for (int i = 0; i < n; i++) { //compare in place, no substrings
+				char vc = v.myWord.charAt(i);
+				char wc = w.myWord.charAt(i);
+				if (vc != wc) {
+					return vc - wc;
+				}
 			}
-			if (w.myWord.length() < r) { //word too short
-				wComp = w.myWord; //use whole word
-			} else {
-				wComp = w.myWord.substring(0, r); //use selected part of word
-			}
-			return vComp.compareTo(wComp); //compare words
+			return vLen - wLen; //shorter one comes first, as in String.compareTo
 		}
 	}
 
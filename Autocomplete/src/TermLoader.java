@@ -0,0 +1,198 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * Loads a weighted-term data file: a first line holding N, then N lines of
+ * weight, tab, term, in UTF-8. The file is memory-mapped and split into
+ * line-aligned chunks that are parsed in parallel without Scanner or regular
+ * expressions, so loading is limited by I/O rather than parsing.
+ *
+ * <pre>
+ * TermLoader data = TermLoader.load(new File("data/cities.txt"));
+ * Autocompletor auto = new TrieAutocomplete(data.terms(), data.weights());
+ * </pre>
+ */
+public class TermLoader {
+
+	/**
+	 * Chunks smaller than this are not worth a task of their own.
+	 */
+	private static final int MIN_CHUNK = 1 << 16;
+
+	private final String[] myTerms;
+	private final double[] myWeights;
+
+	private TermLoader(String[] terms, double[] weights) {
+		myTerms = terms;
+		myWeights = weights;
+	}
+
+	/**
+	 * Terms in file order; terms()[i] has weight weights()[i].
+	 */
+	public String[] terms() {
+		return myTerms;
+	}
+
+	public double[] weights() {
+		return myWeights;
+	}
+
+	/**
+	 * Load and parse file.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the file is not in the expected format
+	 */
+	public static TermLoader load(File file) throws IOException {
+		MappedByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			if (raf.length() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(file + " is larger than 2GB");
+			}
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		}
+		int length = buffer.limit();
+		int headerEnd = lineEnd(buffer, 0, length);
+		int n = (int) parseWeight(buffer, 0, headerEnd);
+		String[] terms = new String[n];
+		double[] weights = new double[n];
+
+		// chunk boundaries, each at the start of a line
+		int bodyStart = Math.min(headerEnd + 1, length);
+		int chunks = Math.max(1, Math.min(4 * Runtime.getRuntime().availableProcessors(),
+				(length - bodyStart) / MIN_CHUNK));
+		int[] starts = new int[chunks + 1];
+		starts[0] = bodyStart;
+		for (int c = 1; c < chunks; c++) {
+			int guess = Math.max(starts[c - 1], bodyStart + (int) ((long) (length - bodyStart) * c / chunks));
+			starts[c] = Math.min(lineEnd(buffer, guess, length) + 1, length);
+		}
+		starts[chunks] = length;
+
+		// count lines per chunk, so each chunk knows the index of its first line
+		int[] firstLine = new int[chunks + 1];
+		int[] counts = IntStream.range(0, chunks).parallel()
+				.map(c -> countLines(buffer, starts[c], starts[c + 1])).toArray();
+		for (int c = 0; c < chunks; c++) {
+			firstLine[c + 1] = firstLine[c] + counts[c];
+		}
+		if (firstLine[chunks] < n) {
+			throw new IllegalArgumentException("expected " + n + " terms but found " + firstLine[chunks]);
+		}
+
+		IntStream.range(0, chunks).parallel().forEach(c -> {
+			int line = firstLine[c];
+			int pos = starts[c];
+			while (pos < starts[c + 1] && line < n) {
+				int end = lineEnd(buffer, pos, starts[c + 1]);
+				if (end > pos) {
+					parseLine(buffer, pos, end, line, terms, weights);
+					line++;
+				}
+				pos = end + 1;
+			}
+		});
+		return new TermLoader(terms, weights);
+	}
+
+	// index of the '\n' ending the line at pos, or limit
+	private static int lineEnd(MappedByteBuffer buffer, int pos, int limit) {
+		while (pos < limit && buffer.get(pos) != '\n') {
+			pos++;
+		}
+		return pos;
+	}
+
+	// number of non-empty lines in [start, end)
+	private static int countLines(MappedByteBuffer buffer, int start, int end) {
+		int count = 0;
+		int pos = start;
+		while (pos < end) {
+			int eol = lineEnd(buffer, pos, end);
+			if (eol > pos) {
+				count++;
+			}
+			pos = eol + 1;
+		}
+		return count;
+	}
+
+	private static void parseLine(MappedByteBuffer buffer, int start, int end, int line, String[] terms,
+			double[] weights) {
+		if (buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		int tab = start;
+		while (tab < end && buffer.get(tab) != '\t') {
+			tab++;
+		}
+		if (tab == end) {
+			throw new IllegalArgumentException("no tab on line " + (line + 2));
+		}
+		weights[line] = parseWeight(buffer, start, tab);
+		byte[] bytes = new byte[end - tab - 1];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(tab + 1 + i);
+		}
+		terms[line] = new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Parse the number in [start, end), ignoring surrounding blanks. Plain
+	 * decimals like "1234.5" are parsed directly; anything else (exponents,
+	 * very long digit strings) goes through Double.parseDouble.
+	 */
+	static double parseWeight(MappedByteBuffer buffer, int start, int end) {
+		while (start < end && buffer.get(start) <= ' ') {
+			start++;
+		}
+		while (end > start && buffer.get(end - 1) <= ' ') {
+			end--;
+		}
+		long mantissa = 0;
+		int digits = 0, fraction = -1;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9' && digits < 15) {
+				mantissa = 10 * mantissa + (b - '0');
+				digits++;
+				if (fraction >= 0) {
+					fraction++;
+				}
+			} else if (b == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				return slowParse(buffer, start, end);
+			}
+		}
+		if (digits == 0) {
+			return slowParse(buffer, start, end);
+		}
+		// both are exact doubles, so one division rounds correctly
+		return fraction <= 0 ? mantissa : mantissa / POWERS_OF_TEN[fraction];
+	}
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15 };
+
+	private static double slowParse(MappedByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		String s = new String(bytes, StandardCharsets.US_ASCII);
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("bad number: " + s);
+		}
+	}
+}
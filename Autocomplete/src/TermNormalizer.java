@@ -0,0 +1,85 @@
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Maps a term or a query to the key it is matched by, so that, for example,
+ * "S\u00e3o Paulo" is found by typing "sao". A NormalizedAutocompletor applies
+ * the same normalizer to its terms when it is built and to every query.
+ *
+ * A normalizer must be a function of the string alone, and should return its
+ * argument, rather than a copy, when it is already normalized.
+ */
+@FunctionalInterface
+public interface TermNormalizer {
+
+	/**
+	 * The key for s.
+	 *
+	 * @throws NullPointerException
+	 *             if s is null
+	 */
+	public String normalize(String s);
+
+	/**
+	 * Matches exactly as typed.
+	 */
+	public static final TermNormalizer IDENTITY = s -> {
+		if (s == null) {
+			throw new NullPointerException("Nothing to normalize");
+		}
+		return s;
+	};
+
+	/**
+	 * Case folding and accent stripping; see fold.
+	 */
+	public static final TermNormalizer FOLD = TermNormalizer::fold;
+
+	/**
+	 * s in lower case, with combining accents removed after canonical
+	 * decomposition, recomposed. ASCII text is lower-cased in place of the
+	 * full Unicode path, and s itself is returned, without a copy, if it is
+	 * ASCII with no capitals, as nearly every typed query is.
+	 *
+	 * @throws NullPointerException
+	 *             if s is null
+	 */
+	public static String fold(String s) {
+		int i = 0;
+		while (i < s.length() && s.charAt(i) < 128 && !isUpper(s.charAt(i))) {
+			i++;
+		}
+		if (i == s.length()) {
+			return s;
+		}
+		int j = i;
+		while (j < s.length() && s.charAt(j) < 128) {
+			j++;
+		}
+		if (j == s.length()) {
+			char[] chars = s.toCharArray();
+			for (; i < chars.length; i++) {
+				if (isUpper(chars[i])) {
+					chars[i] += 'a' - 'A';
+				}
+			}
+			return new String(chars);
+		}
+		// lower-case first: Locale.ROOT avoids the Turkish dotless i, and
+		// capital I with dot lower-cases to i and a combining dot
+		String decomposed = Normalizer.normalize(s.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+		StringBuilder ret = new StringBuilder(decomposed.length());
+		for (int k = 0; k < decomposed.length(); k++) {
+			char ch = decomposed.charAt(k);
+			int type = Character.getType(ch);
+			if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK) {
+				ret.append(ch);
+			}
+		}
+		return Normalizer.normalize(ret, Normalizer.Form.NFC);
+	}
+
+	private static boolean isUpper(char ch) {
+		return ch >= 'A' && ch <= 'Z';
+	}
+}
@@ -0,0 +1,77 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Checks that typing into an AutocompleteSession, including backspaces and
+ * setText, gives the same answers as querying the Autocompletor directly,
+ * for every implementation with its own session.
+ */
+public class TestAutocompleteSession {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+	String[] texts = { "", "a", "ap", "app", "appl", "app", "b", "ba", "bat", "c", "ca", "cat", "cats", "d", "" };
+
+	private Autocompletor[] instances() {
+		return new Autocompletor[] { new TrieAutocomplete(names, weights), new TrieAutocomplete(names, weights, 2),
+				new BinarySearchAutocomplete(names, weights), new BruteAutocomplete(names, weights) };
+	}
+
+	/** Words of terms, checking each weight along the way */
+	private String[] termsToArr(Iterable<Term> terms) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (Term t : terms) {
+			list.add(t.getWord());
+			assertEquals(weights[Arrays.asList(names).indexOf(t.getWord())], t.getWeight(), 0.0);
+		}
+		return list.toArray(new String[0]);
+	}
+
+	private String[] iterToArr(Iterable<String> it) {
+		ArrayList<String> list = new ArrayList<String>();
+		for (String s : it) {
+			list.add(s);
+		}
+		return list.toArray(new String[0]);
+	}
+
+	@Test(timeout = 10000)
+	public void testSetText() {
+		for (Autocompletor auto : instances()) {
+			AutocompleteSession session = auto.startSession();
+			for (String text : texts) {
+				session.setText(text);
+				assertEquals(text, session.getPrefix());
+				assertEquals("topMatch " + text, auto.topMatch(text), session.topMatch());
+				for (int k = 1; k <= 8; k++) {
+					String[] expected = iterToArr(auto.topMatches(text, k));
+					assertArrayEquals("session " + text + " " + k, expected, termsToArr(session.topMatchesWithWeights(k)));
+					assertArrayEquals("with weights " + text + " " + k, expected,
+							termsToArr(auto.topMatchesWithWeights(text, k)));
+				}
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testAppendBackspace() {
+		for (Autocompletor auto : instances()) {
+			AutocompleteSession session = auto.startSession();
+			session.append('b');
+			session.append('x');
+			assertEquals("", session.topMatch());
+			session.backspace();
+			session.append('e');
+			assertEquals("bee", session.topMatch());
+			session.backspace();
+			session.backspace();
+			session.backspace(); // already empty
+			assertEquals("car", session.topMatch());
+		}
+	}
+}
@@ -0,0 +1,109 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+/**
+ * Checks that topMatchesBatch gives the same answers as querying each prefix
+ * directly, with duplicate prefixes and batches large enough to be split
+ * across tasks.
+ */
+public class TestBatchResults {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	private Autocompletor[] instances() {
+		return new Autocompletor[] { new TrieAutocomplete(names, weights), new TrieAutocomplete(names, weights, 2),
+				new BinarySearchAutocomplete(names, weights), new BruteAutocomplete(names, weights) };
+	}
+
+	private String[] prefixes() {
+		String[] base = { "", "a", "ap", "app", "appl", "b", "ba", "bat", "c", "ca", "cat", "cats", "d", "ape" };
+		// more than one task's worth, in no particular order, with duplicates
+		String[] ret = new String[1000];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = base[(i * 7) % base.length];
+		}
+		return ret;
+	}
+
+	@Test(timeout = 10000)
+	public void testMatchesDirect() {
+		String[] prefixes = prefixes();
+		for (Autocompletor auto : instances()) {
+			for (int k = 1; k <= 8; k++) {
+				BatchResults results = auto.topMatchesBatch(prefixes, k);
+				assertEquals(prefixes.length, results.size());
+				for (int i = 0; i < prefixes.length; i++) {
+					ArrayList<String> expected = new ArrayList<String>();
+					for (Term t : auto.topMatchesWithWeights(prefixes[i], k)) {
+						expected.add(t.getWord());
+					}
+					String[] actual = new String[results.count(i)];
+					for (int j = 0; j < actual.length; j++) {
+						actual[j] = results.term(i, j);
+						assertEquals(auto.weightOf(actual[j]), results.weight(i, j), 0.0);
+					}
+					assertArrayEquals(prefixes[i] + " " + k, expected.toArray(), actual);
+				}
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testEmpty() {
+		Autocompletor auto = new TrieAutocomplete(names, weights);
+		assertEquals(0, auto.topMatchesBatch(new String[0], 3).size());
+		BatchResults results = auto.topMatchesBatch(new String[] { "a", "b" }, 0);
+		assertEquals(2, results.size());
+		assertEquals(0, results.count(0));
+		assertEquals(0, results.count(1));
+	}
+
+	@Test(timeout = 10000)
+	public void testHugeK() {
+		// results take room for the matches found, not for k per prefix
+		String[] prefixes = { "a", "b", "c", "d", "" };
+		for (Autocompletor auto : instances()) {
+			BatchResults results = auto.topMatchesBatch(prefixes, 1000000000);
+			assertEquals(2, results.count(0));
+			assertEquals(3, results.count(1));
+			assertEquals(0, results.count(3));
+			assertEquals(7, results.count(4));
+			assertEquals("car", results.term(4, 0));
+			assertEquals("cat", results.term(4, 6));
+		}
+
+		// more matches than a task's first buffer holds
+		String[] many = new String[300];
+		double[] manyWeights = new double[many.length];
+		for (int i = 0; i < many.length; i++) {
+			many[i] = "x" + i;
+			manyWeights[i] = i;
+		}
+		Autocompletor auto = new BinarySearchAutocomplete(many, manyWeights);
+		BatchResults results = auto.topMatchesBatch(new String[] { "x", "x1", "x29", "y" }, 500);
+		int[] counts = { 300, 111, 11, 0 };
+		for (int i = 0; i < counts.length; i++) {
+			assertEquals(counts[i], results.count(i));
+		}
+		for (int j = 0; j < 300; j++) {
+			assertEquals(299 - j, results.weight(0, j), 0.0);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testBadIndex() {
+		Autocompletor auto = new TrieAutocomplete(names, weights);
+		auto.topMatchesBatch(new String[] { "a" }, 5).term(0, 2);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullPrefix() {
+		Autocompletor auto = new TrieAutocomplete(names, weights);
+		auto.topMatchesBatch(new String[] { "a", null }, 5);
+	}
+}
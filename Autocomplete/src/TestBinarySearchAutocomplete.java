@@ -119,6 +119,15 @@ public class TestBinarySearchAutocomplete {
 		}
 	}
 
+	/**
+	 * Tests that topMatches into a MatchBuffer, directly and through a
+	 * session, agrees with topMatchesWithWeights
+	 */
+	@Test(timeout = 10000)
+	public void testMatchBuffer() {
+		TestMatchBuffer.checkMatches(getInstance());
+	}
+
 	/**
 	 * Tests correctness of simple cases where firstIndexOf should find an index
 	 */
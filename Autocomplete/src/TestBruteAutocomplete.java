@@ -0,0 +1,89 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests against BruteAutocomplete, and checks the
+ * chunked parallel scan and predicate queries against a single trie on a
+ * dictionary large enough to be split.
+ */
+public class TestBruteAutocomplete extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new BruteAutocomplete(names, weights);
+	}
+
+	@Test(timeout = 10000)
+	public void testParallelScan() {
+		Random random = new Random(1234);
+		int n = 4 * BruteAutocomplete.MIN_CHUNK + 17;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = (char) ('a' + random.nextInt(4)) + Integer.toString(i, 3);
+			weights[i] = random.nextInt(100); // many ties
+		}
+		TrieAutocomplete expected = new TrieAutocomplete(names, weights);
+		BruteAutocomplete test = new BruteAutocomplete(names, weights);
+		for (String prefix : new String[] { "", "a", "b1", "c12", "d201", "e", "a0" }) {
+			for (int k : new int[] { 1, 3, 50 }) {
+				ArrayList<Term> actual = new ArrayList<Term>();
+				for (Term t : test.topMatchesWithWeights(prefix, k)) {
+					actual.add(t);
+				}
+				ArrayList<Term> reference = new ArrayList<Term>();
+				for (Term t : expected.topMatchesWithWeights(prefix, k)) {
+					reference.add(t);
+				}
+				// ties may be broken differently, so compare weights
+				assertEquals(prefix + " " + k, reference.size(), actual.size());
+				for (int j = 0; j < actual.size(); j++) {
+					assertEquals(reference.get(j).getWeight(), actual.get(j).getWeight(), 0.0);
+					assertTrue(actual.get(j).getWord().startsWith(prefix));
+				}
+			}
+			assertEquals(expected.weightOf(expected.topMatch(prefix)), test.weightOf(test.topMatch(prefix)), 0.0);
+		}
+		for (int i = 0; i < n; i += 97) {
+			assertEquals(weights[i], test.weightOf(names[i]), 0.0);
+		}
+		assertEquals(0.0, test.weightOf("z"), 0.0);
+		assertEquals(n, test.nodeCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testTopMatchesWhere() {
+		BruteAutocomplete test = new BruteAutocomplete(names, weights);
+		ArrayList<String> words = new ArrayList<String>();
+		for (Term t : test.topMatchesWhere(() -> {
+			Matcher matcher = Pattern.compile("a.$").matcher(""); // one per chunk
+			return s -> matcher.reset(s).find();
+		}, 3)) {
+			words.add(t.getWord());
+		}
+		assertEquals(Arrays.asList("car", "bat", "ban"), words);
+		Pattern pattern = Pattern.compile("e");
+		assertFalse(test.topMatchesWhere(() -> s -> pattern.matcher(s).find(), 0).iterator().hasNext());
+	}
+
+	@Test(timeout = 10000)
+	public void testCaseSensitiveWeight() {
+		BruteAutocomplete test = new BruteAutocomplete(new String[] { "Dr", "dr" }, new double[] { 1, 2 });
+		assertEquals(1.0, test.weightOf("Dr"), 0.0);
+		assertEquals(2.0, test.weightOf("dr"), 0.0);
+		assertEquals(0.0, test.weightOf("DR"), 0.0);
+		assertEquals(Arrays.asList("dr"), list(test.topMatches("d", 5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeK() {
+		new BruteAutocomplete(names, weights).topMatches("a", -1);
+	}
+}
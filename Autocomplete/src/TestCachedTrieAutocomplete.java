@@ -0,0 +1,12 @@
+/**
+ * Runs the TrieAutocomplete tests against a trie built with the
+ * precomputed top-k cache, with a cache smaller than some of the k values
+ * tested so both query paths are exercised.
+ */
+public class TestCachedTrieAutocomplete extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new TrieAutocomplete(names, weights, 3);
+	}
+}
@@ -0,0 +1,100 @@
+import static org.junit.Assert.*;
+
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests against ConcurrentTrieAutocomplete, plus
+ * tests of changing the index after it is built.
+ */
+public class TestConcurrentTrieAutocomplete extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new ConcurrentTrieAutocomplete(names, weights);
+	}
+
+	@Test(timeout = 10000)
+	public void testInsert() {
+		ConcurrentTrieAutocomplete test = new ConcurrentTrieAutocomplete(names, weights);
+		test.insert("ba", 10);
+		test.insert("bath", 1);
+		assertEquals(9, test.size());
+		assertEquals("ba", test.topMatch("b"));
+		assertEquals("[ba, bee, bat]", list(test.topMatches("b", 3)).toString());
+		assertEquals("[bath]", list(test.topMatches("bath", 3)).toString());
+		test.insert("ba", 0.5);
+		assertEquals(9, test.size());
+		assertEquals("bee", test.topMatch("b"));
+		assertEquals(0.5, test.weightOf("ba"), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testUpdateWeight() {
+		ConcurrentTrieAutocomplete test = new ConcurrentTrieAutocomplete(names, weights);
+		assertEquals(8.0, test.updateWeight("cat", 7), 0.0);
+		assertEquals("cat", test.topMatch(""));
+		assertEquals(1.0, test.updateWeight("cat", -7), 0.0);
+		// the subtree max under "c" and the root must come back down
+		assertEquals("car", test.topMatch(""));
+		assertEquals("[car, cat]", list(test.topMatches("c", 5)).toString());
+		assertEquals(2.0, test.updateWeight("cab", 2), 0.0);
+		assertEquals(8, test.size());
+		assertEquals("[car, cab, cat]", list(test.topMatches("ca", 5)).toString());
+		try {
+			test.updateWeight("cab", -3);
+			fail("negative weight accepted");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(2.0, test.weightOf("cab"), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testRemove() {
+		ConcurrentTrieAutocomplete test = new ConcurrentTrieAutocomplete(names, weights);
+		assertTrue(test.remove("car"));
+		assertFalse(test.remove("car"));
+		assertFalse(test.remove("ca"));
+		assertEquals(6, test.size());
+		assertEquals("ape", test.topMatch(""));
+		assertEquals("cat", test.topMatch("c"));
+		assertTrue(test.remove("cat"));
+		assertEquals("", test.topMatch("c"));
+		assertEquals("[]", list(test.topMatches("c", 3)).toString());
+		for (String name : names) {
+			test.remove(name);
+		}
+		assertEquals(0, test.size());
+		assertEquals("", test.topMatch(""));
+		test.insert("ape", 1);
+		assertEquals("ape", test.topMatch(""));
+	}
+
+	/**
+	 * Readers running during writes must always see a consistent snapshot:
+	 * here every snapshot holds "aa" with a weight above every other term.
+	 */
+	@Test(timeout = 10000)
+	public void testConcurrentReaders() throws InterruptedException {
+		ConcurrentTrieAutocomplete test = new ConcurrentTrieAutocomplete(new String[] { "aa" },
+				new double[] { 1e9 });
+		boolean[] failed = new boolean[1];
+		Thread reader = new Thread(() -> {
+			for (int i = 0; i < 20000; i++) {
+				if (!"aa".equals(test.topMatch("a"))) {
+					failed[0] = true;
+				}
+			}
+		});
+		reader.start();
+		for (int i = 0; i < 2000; i++) {
+			test.insert("a" + i, i);
+			test.updateWeight("a" + (i / 2), 1);
+			if (i % 3 == 0) {
+				test.remove("a" + (i / 3));
+			}
+		}
+		reader.join();
+		assertFalse(failed[0]);
+	}
+}
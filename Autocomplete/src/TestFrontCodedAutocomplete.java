@@ -0,0 +1,34 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Runs the BinarySearchAutocomplete tests against FrontCodedAutocomplete,
+ * plus a dictionary large enough to span several front-coded blocks.
+ */
+public class TestFrontCodedAutocomplete extends TestBinarySearchAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new FrontCodedAutocomplete(names, weights);
+	}
+
+	@Test(timeout = 10000)
+	public void testManyBlocks() {
+		int n = 10 * FrontCodedAutocomplete.BLOCK_SIZE + 3;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = "term" + i;
+			weights[i] = i;
+		}
+		Autocompletor test = getInstance(names, weights);
+		assertEquals("term" + (n - 1), test.topMatch(""));
+		assertEquals("term99", test.topMatch("term9"));
+		assertEquals("term59", test.topMatch("term5"));
+		assertEquals(42.0, test.weightOf("term42"), 0.0);
+		assertEquals(0.0, test.weightOf("term200"), 0.0);
+		assertEquals(0.0, test.weightOf("term"), 0.0);
+		assertEquals("", test.topMatch("terms"));
+	}
+}
@@ -0,0 +1,121 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks TrieAutocomplete.fuzzyTopMatches against the definition, computed
+ * by brute force: a word matches with the smallest edit distance between the
+ * query and any prefix of the word.
+ */
+public class TestFuzzyAutocomplete {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	private static ArrayList<String> words(Iterable<Term> terms) {
+		ArrayList<String> ret = new ArrayList<String>();
+		for (Term t : terms) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	private static int distance(String a, String b) {
+		int[] row = new int[b.length() + 1];
+		for (int j = 0; j < row.length; j++) {
+			row[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			int[] next = new int[row.length];
+			next[0] = i;
+			for (int j = 1; j < row.length; j++) {
+				int substitute = row[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+				next[j] = Math.min(substitute, Math.min(row[j], next[j - 1]) + 1);
+			}
+			row = next;
+		}
+		return row[b.length()];
+	}
+
+	private static int prefixDistance(String word, String query) {
+		int best = Integer.MAX_VALUE;
+		for (int i = 0; i <= word.length(); i++) {
+			best = Math.min(best, distance(word.substring(0, i), query));
+		}
+		return best;
+	}
+
+	// the expected answer: by distance, then by weight descending
+	private static ArrayList<String> expected(String[] names, double[] weights, String query, int maxEdits, int k) {
+		ArrayList<Integer> matches = new ArrayList<Integer>();
+		int[] dist = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			dist[i] = prefixDistance(names[i], query);
+			if (dist[i] <= maxEdits) {
+				matches.add(i);
+			}
+		}
+		matches.sort((a, b) -> dist[a] != dist[b] ? dist[a] - dist[b] : Double.compare(weights[b], weights[a]));
+		ArrayList<String> ret = new ArrayList<String>();
+		for (int i = 0; i < Math.min(k, matches.size()); i++) {
+			ret.add(names[matches.get(i)]);
+		}
+		return ret;
+	}
+
+	@Test(timeout = 10000)
+	public void testSmall() {
+		TrieAutocomplete trie = new TrieAutocomplete(names, weights);
+		assertEquals(Arrays.asList("car", "cat"), words(trie.fuzzyTopMatches("ca", 0, 5)));
+		// one edit from "ca": "a" (insert c) and "ba"; from "bb": "b"
+		assertEquals(Arrays.asList("car", "cat", "ape", "app", "bat"), words(trie.fuzzyTopMatches("ca", 1, 5)));
+		assertEquals(Arrays.asList("bee", "bat", "ban"), words(trie.fuzzyTopMatches("bb", 1, 5)));
+		// "cxx" needs two edits to reach "c" or "ca"
+		assertEquals(Arrays.asList(), words(trie.fuzzyTopMatches("cxx", 1, 5)));
+		assertEquals(Arrays.asList("car", "cat"), words(trie.fuzzyTopMatches("cxx", 2, 2)));
+		assertEquals(Arrays.asList(), words(trie.fuzzyTopMatches("a", 1, 0)));
+	}
+
+	@Test(timeout = 10000)
+	public void testRandom() {
+		Random random = new Random(1234);
+		int n = 400;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = 1 + random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				word.append((char) ('a' + random.nextInt(4)));
+			}
+			names[i] = word.toString() + i; // distinct words
+			weights[i] = random.nextInt(1000) * 1000 + i; // distinct weights
+		}
+		TrieAutocomplete trie = new TrieAutocomplete(names, weights);
+		TrieAutocomplete cached = new TrieAutocomplete(names, weights, 4);
+		for (int q = 0; q < 100; q++) {
+			StringBuilder query = new StringBuilder();
+			int length = random.nextInt(5);
+			for (int j = 0; j < length; j++) {
+				query.append((char) ('a' + random.nextInt(5)));
+			}
+			for (int maxEdits = 0; maxEdits <= TrieAutocomplete.MAX_EDITS; maxEdits++) {
+				for (int k : new int[] { 1, 5, 30 }) {
+					ArrayList<String> expected = expected(names, weights, query.toString(), maxEdits, k);
+					assertEquals(query + " " + maxEdits + " " + k, expected,
+							words(trie.fuzzyTopMatches(query.toString(), maxEdits, k)));
+					assertEquals(expected, words(cached.fuzzyTopMatches(query.toString(), maxEdits, k)));
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyEdits() {
+		new TrieAutocomplete(names, weights).fuzzyTopMatches("ape", TrieAutocomplete.MAX_EDITS + 1, 3);
+	}
+}
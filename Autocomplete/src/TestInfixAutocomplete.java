@@ -0,0 +1,88 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks InfixAutocomplete against a linear scan with String.contains.
+ */
+public class TestInfixAutocomplete {
+
+	String[] names = { "new york", "york", "newark", "yorktown", "cork", "", "banana" };
+	double[] weights = { 8, 3, 5, 2, 4, 1, 6 };
+
+	private static ArrayList<String> expected(String[] names, double[] weights, String query, int k) {
+		ArrayList<Integer> matches = new ArrayList<Integer>();
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].contains(query)) {
+				matches.add(i);
+			}
+		}
+		matches.sort((a, b) -> Double.compare(weights[b], weights[a]));
+		ArrayList<String> ret = new ArrayList<String>();
+		for (int i = 0; i < Math.min(k, matches.size()); i++) {
+			ret.add(names[matches.get(i)]);
+		}
+		return ret;
+	}
+
+	@Test(timeout = 10000)
+	public void testSmall() {
+		InfixAutocomplete test = new InfixAutocomplete(names, weights);
+		assertEquals(Arrays.asList("new york", "cork", "york", "yorktown"), TestTrieAutocomplete.list(test.topMatches("ork", 10)));
+		assertEquals(Arrays.asList("new york", "york"), TestTrieAutocomplete.list(test.topMatches("york", 2)));
+		assertEquals("new york", test.topMatch("w"));
+		// "banana" holds "an" twice but is returned once
+		assertEquals(Arrays.asList("banana", "newark"), TestTrieAutocomplete.list(test.topMatches("a", 5)));
+		assertEquals(Arrays.asList("banana"), TestTrieAutocomplete.list(test.topMatches("ana", 5)));
+		assertEquals(7, TestTrieAutocomplete.list(test.topMatches("", 10)).size());
+		assertEquals(Arrays.asList(), TestTrieAutocomplete.list(test.topMatches("yorks", 3)));
+		assertEquals(Arrays.asList(), TestTrieAutocomplete.list(test.topMatches("ork", 0)));
+		assertEquals("", test.topMatch("x"));
+		assertEquals(5.0, test.weightOf("newark"), 0.0);
+		assertEquals(1.0, test.weightOf(""), 0.0);
+		assertEquals(0.0, test.weightOf("new"), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testRandom() {
+		Random random = new Random(1234);
+		int n = 500;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			StringBuilder word = new StringBuilder();
+			int length = random.nextInt(12);
+			for (int j = 0; j < length; j++) {
+				word.append("ab c".charAt(random.nextInt(4)));
+			}
+			names[i] = word.toString() + i;
+			weights[i] = random.nextInt(1000) * 1000 + i; // distinct weights
+		}
+		InfixAutocomplete test = new InfixAutocomplete(names, weights);
+		for (int q = 0; q < 300; q++) {
+			StringBuilder query = new StringBuilder();
+			int length = random.nextInt(5);
+			for (int j = 0; j < length; j++) {
+				query.append("ab c1".charAt(random.nextInt(5)));
+			}
+			for (int k : new int[] { 1, 4, 50 }) {
+				ArrayList<String> expected = expected(names, weights, query.toString(), k);
+				assertEquals(query + " " + k, expected, TestTrieAutocomplete.list(test.topMatches(query.toString(), k)));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNulCharacter() {
+		new InfixAutocomplete(new String[] { "a\0b" }, new double[] { 1 });
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullQuery() {
+		new InfixAutocomplete(names, weights).topMatches(null, 3);
+	}
+}
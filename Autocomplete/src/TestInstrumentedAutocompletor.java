@@ -0,0 +1,129 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests through an InstrumentedAutocompletor, to
+ * check it passes everything through, plus tests of what it records.
+ */
+public class TestInstrumentedAutocompletor extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new InstrumentedAutocompletor(new TrieAutocomplete(names, weights));
+	}
+
+	@Test(timeout = 10000)
+	public void testCounts() {
+		InstrumentedAutocompletor auto = new InstrumentedAutocompletor(new TrieAutocomplete(names, weights));
+		auto.topMatches("a", 5);
+		auto.topMatchesWithWeights("c", 1);
+		auto.topMatches("x", 5);
+		auto.topMatch("b");
+		auto.weightOf("ape");
+		assertEquals(4, auto.getQueries());
+		assertEquals(1, auto.getEmptyResults());
+		assertEquals((2 + 1 + 0) / 3.0, auto.getMeanResults(), 1e-9);
+		assertTrue(auto.getMaxExamined() >= 3); // "a", "ap", "ape", "app"
+		assertTrue(auto.getP50Micros() > 0);
+		assertEquals(new TrieAutocomplete(names, weights).nodeCount(), auto.getNodeCount());
+		assertTrue(auto.getEstimatedBytes() > 0);
+		auto.reset();
+		assertEquals(0, auto.getQueries());
+		assertEquals(0.0, auto.getMeanResults(), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testExaminedByImplementation() {
+		String[] prefixes = { "", "b", "ba" };
+		long[] rangeSizes = { 7, 3, 2 };
+		for (int i = 0; i < prefixes.length; i++) {
+			InstrumentedAutocompletor bsa = new InstrumentedAutocompletor(new BinarySearchAutocomplete(names, weights));
+			bsa.topMatches(prefixes[i], 1);
+			assertEquals(prefixes[i], rangeSizes[i], bsa.getMaxExamined());
+			InstrumentedAutocompletor brute = new InstrumentedAutocompletor(new BruteAutocomplete(names, weights));
+			brute.topMatches(prefixes[i], 1);
+			assertEquals(prefixes[i], names.length, brute.getMaxExamined());
+		}
+		InstrumentedAutocompletor wrapped = new InstrumentedAutocompletor(new RadixAutocomplete(names, weights));
+		assertEquals(-1, new InstrumentedAutocompletor(wrapped).getNodeCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testIndexStats() throws IOException {
+		long trieNodes = new TrieAutocomplete(names, weights).nodeCount();
+		long sortedBytes = new BinarySearchAutocomplete(names, weights).estimatedBytes();
+		InstrumentedAutocompletor concurrent = new InstrumentedAutocompletor(
+				new ConcurrentTrieAutocomplete(names, weights));
+		assertEquals(trieNodes, concurrent.getNodeCount());
+		assertTrue(concurrent.getEstimatedBytes() > 0);
+
+		InstrumentedAutocompletor frontCoded = new InstrumentedAutocompletor(new FrontCodedAutocomplete(names, weights));
+		assertEquals(names.length, frontCoded.getNodeCount());
+		assertTrue(frontCoded.getEstimatedBytes() > 0);
+		assertTrue(frontCoded.getEstimatedBytes() < sortedBytes); // no String or Term per entry
+
+		File index = File.createTempFile("autocomplete", MappedAutocomplete.SUFFIX);
+		index.deleteOnExit();
+		MappedAutocomplete.write(names, weights, index);
+		InstrumentedAutocompletor mapped = new InstrumentedAutocompletor(new MappedAutocomplete(index));
+		assertEquals(names.length, mapped.getNodeCount());
+		assertEquals(index.length(), mapped.getEstimatedBytes());
+	}
+
+	@Test(timeout = 10000)
+	public void testExaminedSharded() {
+		// shards query on pool threads; their work must still be counted
+		Random random = new Random(1234);
+		int n = 20000;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = (char) ('a' + random.nextInt(4)) + Integer.toString(i, 5);
+			weights[i] = random.nextInt(1000);
+		}
+		ShardedAutocomplete sharded = new ShardedAutocomplete(names, weights, 4, ShardedAutocomplete.Partition.HASH,
+				BinarySearchAutocomplete::new);
+		for (String prefix : new String[] { "", "a", "b1", "c12" }) {
+			long matches = 0;
+			for (String name : names) {
+				matches += name.startsWith(prefix) ? 1 : 0;
+			}
+			// the shards' matching ranges add up to all the matches
+			InstrumentedAutocompletor test = new InstrumentedAutocompletor(sharded);
+			for (int q = 0; q < 100; q++) {
+				test.topMatches(prefix, 10);
+			}
+			assertEquals(prefix, matches, test.getMeanExamined(), 0.0);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testHistogram() {
+		LogHistogram histogram = new LogHistogram();
+		assertEquals(0, histogram.percentile(0.5));
+		for (long v = 1; v <= 1000; v++) {
+			histogram.record(v * 1000);
+		}
+		assertEquals(1000, histogram.count());
+		assertEquals(500500.0, histogram.mean(), 1e-6);
+		// within the 1/32 bucket width
+		assertEquals(500000, histogram.percentile(0.5), 500000 / 32);
+		assertEquals(990000, histogram.percentile(0.99), 990000 / 32);
+		assertEquals(1000000, histogram.max(), 1000000 / 32);
+		for (long v = 0; v < 64; v++) {
+			assertEquals(v, LogHistogram.highestValue(LogHistogram.bucket(v)));
+		}
+		for (long v = 64; v < 1L << 50; v = v * 3 + 1) {
+			int b = LogHistogram.bucket(v);
+			assertTrue(v <= LogHistogram.highestValue(b));
+			assertTrue(v > LogHistogram.highestValue(b - 1));
+		}
+		histogram.reset();
+		assertEquals(0, histogram.count());
+	}
+}
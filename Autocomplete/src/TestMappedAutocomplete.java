@@ -0,0 +1,52 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+/**
+ * Runs the BinarySearchAutocomplete tests against an index written to a
+ * temporary file and served by MappedAutocomplete.
+ */
+public class TestMappedAutocomplete extends TestBinarySearchAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		try {
+			File index = File.createTempFile("autocomplete", MappedAutocomplete.SUFFIX);
+			index.deleteOnExit();
+			MappedAutocomplete.write(names, weights, index);
+			return new MappedAutocomplete(index);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testCorruptHeader() throws IOException {
+		File index = File.createTempFile("autocomplete", MappedAutocomplete.SUFFIX);
+		index.deleteOnExit();
+		// {offset of n, bad n}, {offset of chars, bad chars}
+		long[][] corruptions = { { 8, -1 }, { 8, Integer.MAX_VALUE }, { 8, 1 << 30 }, { 16, -1 }, { 16, Long.MAX_VALUE },
+				{ 16, 1000 } };
+		for (long[] corruption : corruptions) {
+			MappedAutocomplete.write(new String[] { "ape", "app", "ban" }, new double[] { 6, 4, 2 }, index);
+			try (RandomAccessFile raf = new RandomAccessFile(index, "rw")) {
+				raf.seek(corruption[0]);
+				if (corruption[0] == 8) {
+					raf.writeInt((int) corruption[1]);
+				} else {
+					raf.writeLong(corruption[1]);
+				}
+			}
+			try {
+				new MappedAutocomplete(index);
+				fail("accepted " + corruption[1] + " at " + corruption[0]);
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks MatchBuffer's selection and budgets, RangeMaxIndex's
+ * allocation-free top-k, and that the trie and sorted-array paths allocate
+ * nothing per query. checkMatches is the buffer test the Autocompletor test
+ * classes run on their own instances.
+ */
+public class TestMatchBuffer {
+
+	/**
+	 * Check that topMatches into a buffer, directly and through a session,
+	 * agrees with topMatchesWithWeights for test, built from the seven terms
+	 * the Autocompletor tests share ("ape" through "cat").
+	 */
+	static void checkMatches(Autocompletor test) {
+		String[] queries = { "", "a", "ap", "b", "ba", "c", "ca", "cat", "d", " " };
+		AutocompleteSession session = test.startSession();
+		for (int k : new int[] { 0, 1, 2, 3, 8 }) {
+			MatchBuffer results = new MatchBuffer(k);
+			MatchBuffer sessionResults = new MatchBuffer(k);
+			for (String query : queries) {
+				int n = test.topMatches(query, results);
+				session.setText(query);
+				assertEquals(n, session.topMatches(sessionResults));
+				assertEquals(n, results.size());
+				int i = 0;
+				for (Term t : test.topMatchesWithWeights(query, k)) {
+					assertEquals(t.getWord(), results.term(i));
+					assertEquals(t.getWeight(), results.weight(i), 0.0);
+					assertEquals(t.getWord(), sessionResults.term(i));
+					i++;
+				}
+				assertEquals("wrong match count for " + query + " " + k, i, n);
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testOfferAndSort() {
+		Random random = new Random(1234);
+		for (int k : new int[] { 0, 1, 5, 64 }) {
+			MatchBuffer results = new MatchBuffer(k);
+			double[] weights = new double[200];
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] = random.nextInt(1000);
+				results.offer("t" + i, weights[i]);
+			}
+			assertEquals(k, results.sort());
+			double[] sorted = weights.clone();
+			Arrays.sort(sorted);
+			for (int i = 0; i < k; i++) {
+				assertEquals(sorted[sorted.length - 1 - i], results.weight(i), 0.0);
+				assertEquals(weights[Integer.parseInt(results.term(i).substring(1))], results.weight(i), 0.0);
+			}
+			results.clear();
+			assertEquals(0, results.size());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testFrontier() {
+		MatchBuffer buffer = new MatchBuffer(1);
+		Random random = new Random(1234);
+		for (int i = 0; i < 100; i++) {
+			buffer.push(i, random.nextDouble());
+		}
+		double last = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < 100; i++) {
+			assertTrue(buffer.hasFrontier());
+			double priority = buffer.topPriority();
+			assertTrue(priority <= last);
+			assertNotNull(buffer.pop());
+			last = priority;
+		}
+		assertFalse(buffer.hasFrontier());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFull() {
+		MatchBuffer results = new MatchBuffer(1);
+		results.add("a", 1);
+		results.add("b", 2);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testPastSize() {
+		MatchBuffer results = new MatchBuffer(3);
+		results.add("a", 1);
+		results.term(1);
+	}
+
+	@Test(timeout = 10000)
+	public void testTopIndices() {
+		Random random = new Random(1234);
+		double[] values = new double[300];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(50); // ties
+		}
+		RangeMaxIndex index = new RangeMaxIndex(values);
+		for (int q = 0; q < 200; q++) {
+			int lo = random.nextInt(values.length), hi = lo + random.nextInt(values.length - lo);
+			int k = random.nextInt(20);
+			int[] expected = index.topIndices(lo, hi, k);
+			int[] work = new int[RangeMaxIndex.workSize(k)];
+			int n = index.topIndices(lo, hi, k, work);
+			assertEquals(expected.length, n);
+			for (int i = 0; i < n; i++) {
+				assertEquals(expected[i], work[i]); // ties in the same order
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testBudget() {
+		Random random = new Random(1234);
+		int n = 20000;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = (char) ('a' + random.nextInt(4)) + Integer.toString(i, 5);
+			weights[i] = i; // distinct
+		}
+		TrieAutocomplete trie = new TrieAutocomplete(names, weights);
+		InstrumentedAutocompletor test = new InstrumentedAutocompletor(trie);
+		MatchBuffer exact = new MatchBuffer(50);
+		MatchBuffer partial = new MatchBuffer(50);
+		for (String prefix : new String[] { "", "a", "b1", "c23" }) {
+			assertEquals(trie.topMatches(prefix, exact), test.topMatches(prefix, partial));
+			assertTrue(partial.isComplete());
+			assertEquals(partial.size(), partial.certain());
+		}
+		assertEquals(0, test.getIncompleteResults());
+
+		for (long budget : new long[] { 1, 10, 50 }) { // 50 results need more than 50 nodes
+			partial.setBudget(budget, Long.MAX_VALUE);
+			trie.topMatches("", exact);
+			int count = test.topMatches("", partial);
+			assertFalse(partial.isComplete());
+			assertTrue(count <= 50);
+			for (int i = 1; i < count; i++) {
+				assertTrue(partial.weight(i - 1) >= partial.weight(i));
+			}
+			for (int i = 0; i < partial.certain(); i++) {
+				assertEquals(exact.term(i), partial.term(i));
+			}
+		}
+		assertEquals(3, test.getIncompleteResults());
+		partial.setBudget(1000, Long.MAX_VALUE);
+		test.topMatches("c234", partial); // a small subtrie fits the budget
+		assertTrue(partial.isComplete());
+
+		// time budget: checked every 64 nodes, so 0 stops after the first 64
+		partial.setBudget(Long.MAX_VALUE, 0);
+		trie.topMatches("", partial);
+		assertFalse(partial.isComplete());
+		assertTrue(partial.size() <= 64);
+
+		// bounded queries ignore the budget
+		partial.setBudget(1, 0);
+		new BinarySearchAutocomplete(names, weights).topMatches("", partial);
+		assertTrue(partial.isComplete());
+		for (int i = 0; i < 50; i++) {
+			assertEquals(exact.term(i), partial.term(i));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testNoAllocation() {
+		Random random = new Random(1234);
+		int n = 20000;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = (char) ('a' + random.nextInt(4)) + Integer.toString(i, 5);
+			weights[i] = random.nextInt(100000);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		String[] prefixes = { "", "a", "b1", "c23", "d4" };
+		for (Autocompletor auto : new Autocompletor[] { new TrieAutocomplete(names, weights),
+				new TrieAutocomplete(names, weights, 10), new BinarySearchAutocomplete(names, weights) }) {
+			MatchBuffer results = new MatchBuffer(10);
+			AutocompleteSession session = auto.startSession();
+			session.setText("b1");
+			for (int rep = 0; rep < 2; rep++) { // the first grows the buffer's storage
+				long before = threads.getThreadAllocatedBytes(id);
+				for (int q = 0; q < 1000; q++) {
+					auto.topMatches(prefixes[q % prefixes.length], results);
+					session.topMatches(results);
+				}
+				long allocated = threads.getThreadAllocatedBytes(id) - before;
+				if (rep == 1) {
+					assertTrue(auto.getClass().getName() + " allocated " + allocated, allocated < 2000);
+				}
+			}
+		}
+	}
+}
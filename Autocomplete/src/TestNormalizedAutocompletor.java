@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests through a folding NormalizedAutocompletor,
+ * and checks folding, display strings and sessions.
+ */
+public class TestNormalizedAutocompletor extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new NormalizedAutocompletor(names, weights);
+	}
+
+	String[] cities = { "S\u00e3o Paulo", "New York", "new york", "Sapporo", "Z\u00fcrich", "\u0130zmir", "ZURICH" };
+	double[] populations = { 12, 8, 1, 2, 0.4, 3, 0.1 };
+
+	@Test(timeout = 10000)
+	public void testFold() {
+		String folded = "new york 42";
+		assertTrue(folded == TermNormalizer.fold(folded)); // no copy
+		assertEquals("new york", TermNormalizer.fold("New YORK"));
+		assertEquals("sao paulo", TermNormalizer.fold("S\u00e3o Paulo"));
+		assertEquals("sao paulo", TermNormalizer.fold("Sa\u0303o Paulo")); // decomposed
+		assertEquals("zurich", TermNormalizer.fold("Z\u00dcRICH"));
+		assertEquals("izmir", TermNormalizer.fold("\u0130zmir"));
+		assertEquals("", TermNormalizer.fold(""));
+		assertEquals("Ab", TermNormalizer.IDENTITY.normalize("Ab"));
+	}
+
+	@Test(timeout = 10000)
+	public void testDisplay() {
+		for (Autocompletor test : new Autocompletor[] { new NormalizedAutocompletor(cities, populations),
+				new NormalizedAutocompletor(cities, populations, TermNormalizer.FOLD, BinarySearchAutocomplete::new),
+				new NormalizedAutocompletor(cities, populations, TermNormalizer.FOLD, BruteAutocomplete::new) }) {
+			assertEquals(Arrays.asList("S\u00e3o Paulo", "Sapporo"), list(test.topMatches("sa", 5)));
+			assertEquals(Arrays.asList("S\u00e3o Paulo"), list(test.topMatches("S\u00c3O", 5)));
+			// "New York" and "new york" share a key: one entry, the heavier
+			assertEquals(Arrays.asList("New York"), list(test.topMatches("new", 5)));
+			assertEquals(8.0, test.weightOf("NEW YORK"), 0.0);
+			assertEquals(Arrays.asList("Z\u00fcrich"), list(test.topMatches("zu", 5)));
+			assertEquals(0.4, test.weightOf("zurich"), 0.0);
+			assertEquals("\u0130zmir", test.topMatch("iz"));
+			assertEquals("", test.topMatch("x"));
+			assertEquals("S\u00e3o Paulo", test.topMatch(""));
+			for (Term t : test.topMatchesWithWeights("sap", 1)) {
+				assertEquals("Sapporo", t.getWord());
+				assertEquals(2.0, t.getWeight(), 0.0);
+			}
+		}
+		Autocompletor exact = new NormalizedAutocompletor(cities, populations, TermNormalizer.IDENTITY,
+				TrieAutocomplete::new);
+		assertEquals(Arrays.asList("New York"), list(exact.topMatches("N", 5)));
+		assertEquals(Arrays.asList("new york"), list(exact.topMatches("n", 5)));
+	}
+
+	@Test(timeout = 10000)
+	public void testSession() {
+		AutocompleteSession session = new NormalizedAutocompletor(cities, populations).startSession();
+		session.setText("SA");
+		assertEquals(Arrays.asList("S\u00e3o Paulo", "Sapporo"), list(session.topMatches(5)));
+		session.append('P');
+		assertEquals("SAP", session.getPrefix());
+		assertEquals("Sapporo", session.topMatch());
+		session.backspace();
+		session.backspace();
+		session.append('\u00e3');
+		assertEquals("S\u00e3o Paulo", session.topMatch());
+		session.setText("Z\u00fc");
+		assertEquals(Arrays.asList("Z\u00fcrich"), list(session.topMatches(5)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicate() {
+		new NormalizedAutocompletor(new String[] { "a", "a" }, new double[] { 1, 2 });
+	}
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests against a PopularityAutocompletor with no
+ * selections, and checks selection counting, decay, and queries during
+ * rebuilds.
+ */
+public class TestPopularityAutocompletor extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new PopularityAutocompletor(names, weights);
+	}
+
+	@Test(timeout = 10000)
+	public void testSelectAndDecay() {
+		AtomicLong clock = new AtomicLong();
+		PopularityAutocompletor test = new PopularityAutocompletor(names, weights, 2, 1000, TrieAutocomplete::new,
+				clock::get);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(test.select("cat"));
+		}
+		assertFalse(test.select("dog"));
+		assertEquals(1.0, test.weightOf("cat"), 0.0); // not until the rebuild
+		test.rebuild();
+		assertEquals(1 + 2 * 4, test.weightOf("cat"), 1e-9);
+		assertEquals(Arrays.asList("cat", "car"), list(test.topMatches("c", 2)));
+		assertEquals("cat", test.topMatch(""));
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000)); // one half-life
+		test.select("ban");
+		test.rebuild();
+		assertEquals(1 + 2 * 2, test.weightOf("cat"), 1e-9);
+		assertEquals(2 + 2 * 1, test.weightOf("ban"), 1e-9);
+		assertEquals(Arrays.asList("car", "cat"), list(test.topMatches("c", 2)));
+
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10000)); // faded to the base weights
+		test.rebuild();
+		assertEquals(1.0, test.weightOf("cat"), 0.01);
+		assertEquals(2.0, test.weightOf("ban"), 0.01);
+	}
+
+	@Test(timeout = 10000)
+	public void testConcurrentSelections() throws InterruptedException {
+		PopularityAutocompletor test = new PopularityAutocompletor(names, weights, 1, 1000000,
+				TrieAutocomplete::new);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					test.select("ape");
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		test.rebuild();
+		assertEquals(6 + 40000, test.weightOf("ape"), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testQueriesDuringRebuilds() throws InterruptedException {
+		PopularityAutocompletor test = new PopularityAutocompletor(names, weights, 1, 1000,
+				(t, w) -> new TrieAutocomplete(t, w, 2));
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread reader = new Thread(() -> {
+			try {
+				MatchBuffer results = new MatchBuffer(7);
+				for (int i = 0; i < 20000; i++) {
+					assertEquals(7, test.topMatches("", results));
+					assertEquals(2, list(test.topMatches("a", 5)).size());
+				}
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+		reader.start();
+		test.start(1);
+		while (reader.isAlive()) {
+			test.select(names[(int) (System.nanoTime() % names.length)]);
+			Thread.sleep(1);
+		}
+		test.close();
+		test.close(); // harmless twice
+		assertNull(failure.get());
+		Autocompletor last = test.getSnapshot();
+		Thread.sleep(20);
+		assertTrue(last == test.getSnapshot()); // no rebuilds after close
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHalfLife() {
+		new PopularityAutocompletor(names, weights, 1, 0, TrieAutocomplete::new);
+	}
+}
@@ -0,0 +1,57 @@
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests through a PrefixFilterAutocompletor, and
+ * checks the filter never rejects a real prefix and rarely accepts a false
+ * one.
+ */
+public class TestPrefixFilterAutocompletor extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new PrefixFilterAutocompletor(new TrieAutocomplete(names, weights), names, 2);
+	}
+
+	@Test(timeout = 10000)
+	public void testFilter() {
+		Random random = new Random(1234);
+		int n = 5000;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		HashSet<String> prefixes = new HashSet<String>();
+		for (int i = 0; i < n; i++) {
+			names[i] = Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + i;
+			weights[i] = i;
+			for (int j = 0; j <= Math.min(names[i].length(), 6); j++) {
+				prefixes.add(names[i].substring(0, j));
+			}
+		}
+		PrefixFilterAutocompletor test = new PrefixFilterAutocompletor(new BinarySearchAutocomplete(names, weights),
+				names, 6);
+		for (String prefix : prefixes) {
+			assertTrue(prefix, test.mightHavePrefix(prefix));
+		}
+		for (int i = 0; i < n; i++) {
+			assertTrue(test.mightHavePrefix(names[i] + "anything")); // only the first 6 characters are checked
+			assertEquals(weights[i], test.weightOf(names[i]), 0.0);
+		}
+		int falsePositives = 0, tries = 0;
+		while (tries < 20000) {
+			String prefix = Long.toString(random.nextLong() & Long.MAX_VALUE, 36).substring(0, 5);
+			if (!prefixes.contains(prefix)) {
+				tries++;
+				if (test.mightHavePrefix(prefix)) {
+					falsePositives++;
+				}
+			}
+		}
+		assertTrue("false positive rate " + falsePositives / (double) tries, falsePositives < tries * 0.03);
+		assertEquals("", test.topMatch("!!"));
+		assertFalse(test.topMatches("!!", 5).iterator().hasNext());
+	}
+}
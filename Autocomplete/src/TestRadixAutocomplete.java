@@ -0,0 +1,11 @@
+/**
+ * Runs the TrieAutocomplete tests against the path-compressed
+ * RadixAutocomplete.
+ */
+public class TestRadixAutocomplete extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new RadixAutocomplete(names, weights);
+	}
+}
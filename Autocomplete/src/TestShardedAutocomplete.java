@@ -0,0 +1,54 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Runs the TrieAutocomplete tests against a hash-sharded
+ * ShardedAutocomplete, and checks both partitions against a single trie on a
+ * larger random dictionary.
+ */
+public class TestShardedAutocomplete extends TestTrieAutocomplete {
+
+	@Override
+	public Autocompletor getInstance(String[] names, double[] weights) {
+		return new ShardedAutocomplete(names, weights, 3, ShardedAutocomplete.Partition.HASH, TrieAutocomplete::new);
+	}
+
+	@Test(timeout = 10000)
+	public void testMatchesSingleTrie() {
+		Random random = new Random(1234);
+		int n = 2000;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = (char) ('a' + random.nextInt(4)) + Integer.toString(i, 3);
+			weights[i] = i; // distinct, so the order is unambiguous
+		}
+		TrieAutocomplete expected = new TrieAutocomplete(names, weights);
+		for (ShardedAutocomplete.Partition partition : ShardedAutocomplete.Partition.values()) {
+			ShardedAutocomplete test = new ShardedAutocomplete(names, weights, 5, partition,
+					BinarySearchAutocomplete::new);
+			assertEquals(5, test.shardCount());
+			assertEquals(n, test.nodeCount());
+			for (String prefix : new String[] { "", "a", "b1", "c12", "d201", "e", "a0" }) {
+				for (int k : new int[] { 1, 3, 50 }) {
+					assertEquals(partition + " " + prefix + " " + k, list(expected.topMatches(prefix, k)),
+							list(test.topMatches(prefix, k)));
+				}
+				assertEquals(expected.topMatch(prefix), test.topMatch(prefix));
+			}
+			for (int i = 0; i < n; i += 97) {
+				assertEquals(weights[i], test.weightOf(names[i]), 0.0);
+			}
+			assertEquals(0.0, test.weightOf("z"), 0.0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateAcrossInput() {
+		new ShardedAutocomplete(new String[] { "a", "b", "a" }, new double[] { 1, 2, 3 }, 2,
+				ShardedAutocomplete.Partition.FIRST_CHAR, TrieAutocomplete::new);
+	}
+}
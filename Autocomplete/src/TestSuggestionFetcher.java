@@ -0,0 +1,98 @@
+import static org.junit.Assert.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Checks that SuggestionFetcher debounces requests and never delivers
+ * results of a request that a newer one replaced.
+ */
+public class TestSuggestionFetcher {
+
+	String[] names = { "ape", "app", "ban", "bat", "bee", "car", "cat" };
+	double[] weights = { 6, 4, 2, 3, 5, 7, 1 };
+
+	@Test(timeout = 10000)
+	public void testDebounce() throws InterruptedException {
+		BlockingQueue<SuggestionFetcher.Suggestions> delivered = new LinkedBlockingQueue<SuggestionFetcher.Suggestions>();
+		try (SuggestionFetcher fetcher = new SuggestionFetcher(new TrieAutocomplete(names, weights), 2, 200,
+				SuggestionFetcher.BUDGET_MILLIS, delivered::add, Runnable::run)) {
+			fetcher.request("b");
+			fetcher.request("ba");
+			fetcher.request("bat");
+			fetcher.request("ba");
+			SuggestionFetcher.Suggestions found = delivered.take();
+			assertEquals("ba", found.getText());
+			assertEquals(2, found.size());
+			assertEquals("bat", found.term(0));
+			assertEquals(3, found.weight(0), 0.0);
+			assertEquals("ban", found.term(1));
+			assertTrue(found.isComplete());
+			assertNull(delivered.poll(400, TimeUnit.MILLISECONDS)); // the others never ran
+
+			fetcher.request("c");
+			fetcher.cancel();
+			assertNull(delivered.poll(400, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testStaleDelivery() throws InterruptedException {
+		BlockingQueue<Runnable> deliveries = new LinkedBlockingQueue<Runnable>();
+		BlockingQueue<SuggestionFetcher.Suggestions> delivered = new LinkedBlockingQueue<SuggestionFetcher.Suggestions>();
+		try (SuggestionFetcher fetcher = new SuggestionFetcher(new TrieAutocomplete(names, weights), 3, 0,
+				SuggestionFetcher.BUDGET_MILLIS, delivered::add, deliveries::add)) {
+			fetcher.request("a");
+			Runnable stale = deliveries.take(); // queried, not yet shown
+			fetcher.request("c");
+			stale.run();
+			assertTrue(delivered.isEmpty());
+			deliveries.take().run();
+			assertEquals("c", delivered.remove().getText());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testInFlightCancel() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		TrieAutocomplete slow = new TrieAutocomplete(names, weights) {
+			@Override
+			public AutocompleteSession startSession() {
+				return new AutocompleteSession(this) {
+					@Override
+					public int topMatches(MatchBuffer results) {
+						if (getPrefix().equals("a")) {
+							// a search that only ends when its budget does
+							results.clear();
+							started.countDown();
+							while (!results.spend()) {
+							}
+							return 0;
+						}
+						return super.topMatches(results);
+					}
+				};
+			}
+		};
+		BlockingQueue<SuggestionFetcher.Suggestions> delivered = new LinkedBlockingQueue<SuggestionFetcher.Suggestions>();
+		try (SuggestionFetcher fetcher = new SuggestionFetcher(slow, 3, 0, TimeUnit.MINUTES.toMillis(10),
+				delivered::add, Runnable::run)) {
+			fetcher.request("a");
+			started.await();
+			fetcher.request("b");
+			SuggestionFetcher.Suggestions found = delivered.take();
+			assertEquals("b", found.getText());
+			assertEquals("bee", found.term(0));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDelay() {
+		new SuggestionFetcher(new TrieAutocomplete(names, weights), 3, -1, 0, s -> {
+		}, Runnable::run);
+	}
+}
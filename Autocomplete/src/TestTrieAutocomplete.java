@@ -19,6 +19,17 @@ public class TestTrieAutocomplete {
 	String[] names= {"ape", "app", "ban", "bat", "bee", "car", "cat"};
 	double[] weights = {6, 4, 2, 3, 5, 7, 1};
 
+	/**
+	 * The elements of it, in order, for comparing results with assertEquals
+	 */
+	protected static ArrayList<String> list(Iterable<String> it) {
+		ArrayList<String> ret = new ArrayList<String>();
+		for (String s : it) {
+			ret.add(s);
+		}
+		return ret;
+	}
+
 	public Autocompletor getInstance(){
 		return getInstance(names, weights);
 	}
@@ -111,6 +122,15 @@ public class TestTrieAutocomplete {
 		}
 	}
 
+	/**
+	 * Tests that topMatches into a MatchBuffer, directly and through a
+	 * session, agrees with topMatchesWithWeights
+	 */
+	@Test(timeout = 10000)
+	public void testMatchBuffer() {
+		TestMatchBuffer.checkMatches(getInstance());
+	}
+
 	/**
 	 * A more rigorous testing of Trie, to make sure add works.
 	 * The Trie should be constructed the same regardless of the order
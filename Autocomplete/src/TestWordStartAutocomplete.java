@@ -0,0 +1,100 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks WordStartAutocomplete against a scan that tests every folded token
+ * of the query against every folded word of every term.
+ */
+public class TestWordStartAutocomplete {
+
+	String[] names = { "Bank of America Corp.", "American Intl. Group", "American Electric Power", "J.P. Morgan Chase",
+			"Morgan Stanley", "Bank One Corp.", "" };
+	double[] weights = { 9, 8, 4, 7, 6, 3, 1 };
+
+	private static ArrayList<String> expected(String[] names, double[] weights, String query, int k) {
+		ArrayList<String> tokens = WordStartAutocomplete.words(TermNormalizer.fold(query));
+		ArrayList<Integer> matches = new ArrayList<Integer>();
+		for (int i = 0; i < names.length; i++) {
+			ArrayList<String> words = WordStartAutocomplete.words(TermNormalizer.fold(names[i]));
+			boolean all = true;
+			for (String token : tokens) {
+				boolean any = false;
+				for (String word : words) {
+					any |= word.startsWith(token);
+				}
+				all &= any;
+			}
+			if (all) {
+				matches.add(i);
+			}
+		}
+		matches.sort((a, b) -> Double.compare(weights[b], weights[a]));
+		ArrayList<String> ret = new ArrayList<String>();
+		for (int i = 0; i < Math.min(k, matches.size()); i++) {
+			ret.add(names[matches.get(i)]);
+		}
+		return ret;
+	}
+
+	@Test(timeout = 10000)
+	public void testSmall() {
+		WordStartAutocomplete test = new WordStartAutocomplete(names, weights);
+		assertEquals(Arrays.asList("Bank of America Corp.", "American Intl. Group", "American Electric Power"),
+				TestTrieAutocomplete.list(test.topMatches("Am", 5)));
+		assertEquals(Arrays.asList("Bank of America Corp."), TestTrieAutocomplete.list(test.topMatches("Am Ba", 5)));
+		assertEquals(Arrays.asList("Bank of America Corp.", "Bank One Corp."), TestTrieAutocomplete.list(test.topMatches("Co Ban", 5)));
+		assertEquals(Arrays.asList("J.P. Morgan Chase", "Morgan Stanley"), TestTrieAutocomplete.list(test.topMatches("Morgan", 5)));
+		assertEquals(Arrays.asList("J.P. Morgan Chase"), TestTrieAutocomplete.list(test.topMatches("P. Morg", 5)));
+		assertEquals(Arrays.asList(), TestTrieAutocomplete.list(test.topMatches("Bank Stanley", 5)));
+		assertEquals(Arrays.asList(), TestTrieAutocomplete.list(test.topMatches("merica", 5)));
+		assertEquals(7, TestTrieAutocomplete.list(test.topMatches(" ", 10)).size());
+		assertEquals("Bank of America Corp.", test.topMatch(""));
+		assertEquals("", test.topMatch("Zebra"));
+		assertEquals(7.0, test.weightOf("J.P. Morgan Chase"), 0.0);
+		assertEquals(0.0, test.weightOf("Morgan"), 0.0);
+	}
+
+	@Test(timeout = 10000)
+	public void testFolded() {
+		WordStartAutocomplete test = new WordStartAutocomplete(names, weights);
+		assertEquals(Arrays.asList("Bank of America Corp."), TestTrieAutocomplete.list(test.topMatches("am ba", 5)));
+		assertEquals(Arrays.asList("Bank of America Corp."), TestTrieAutocomplete.list(test.topMatches("bank amer", 5)));
+		assertEquals(Arrays.asList("J.P. Morgan Chase", "Morgan Stanley"), TestTrieAutocomplete.list(test.topMatches("MORGAN", 5)));
+		assertEquals(Arrays.asList("American Electric Power"), TestTrieAutocomplete.list(test.topMatches("\u00e9lec am", 5)));
+		assertEquals(0.0, test.weightOf("morgan stanley"), 0.0); // weights are looked up exactly
+	}
+
+	@Test(timeout = 10000)
+	public void testRandom() {
+		Random random = new Random(1234);
+		int n = 600;
+		String[] names = new String[n];
+		double[] weights = new double[n];
+		for (int i = 0; i < n; i++) {
+			StringBuilder term = new StringBuilder();
+			int length = random.nextInt(14);
+			for (int j = 0; j < length; j++) {
+				term.append("aB c.D".charAt(random.nextInt(6)));
+			}
+			names[i] = term.toString() + " " + i;
+			weights[i] = random.nextInt(1000) * 1000 + i; // distinct weights
+		}
+		WordStartAutocomplete test = new WordStartAutocomplete(names, weights);
+		for (int q = 0; q < 300; q++) {
+			StringBuilder query = new StringBuilder();
+			int length = random.nextInt(7);
+			for (int j = 0; j < length; j++) {
+				query.append("ab cd1".charAt(random.nextInt(6)));
+			}
+			for (int k : new int[] { 1, 4, 100 }) {
+				assertEquals(query + " " + k, expected(names, weights, query.toString(), k),
+						TestTrieAutocomplete.list(test.topMatches(query.toString(), k)));
+			}
+		}
+	}
+}
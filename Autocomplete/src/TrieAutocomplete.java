@@ -1,9 +1,12 @@
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * General trie/priority queue algorithm for implementing Autocompletor
@@ -11,13 +14,25 @@ import java.util.Set;
  * @author Austin Lu
  * @author Jeff Forbes
  */
-public class TrieAutocomplete implements Autocompletor {
+public class TrieAutocomplete implements Autocompletor, IndexStats {
 
 	/**
 	 * Root of entire trie
 	 */
 	protected Node myRoot;
 
+	/**
+	 * Number of completions precomputed at every node, or 0 if the trie was
+	 * built without the top-k cache.
+	 */
+	protected int myCacheSize;
+
+	/**
+	 * Subtries at or above this depth are built on separate fork-join tasks
+	 * when the top-k cache is computed.
+	 */
+	private static final int PARALLEL_DEPTH = 2;
+
 	/**
 	 * Constructor method for TrieAutocomplete. Should initialize the trie rooted at
 	 * myRoot, as well as add all nodes necessary to represent the words in terms.
@@ -48,6 +63,97 @@ public class TrieAutocomplete implements Autocompletor {
 		for (int i = 0; i < terms.length; i++) {
 			add(terms[i], weights[i]);
 		}
+		myRoot.trim(); //drop spare child slots now that the trie is built
+	}
+
+	/**
+	 * Same as TrieAutocomplete(terms, weights), but also stores the
+	 * cacheSize heaviest completions at every node. topMatches with k <=
+	 * cacheSize and topMatch are then answered by walking the prefix and
+	 * copying the stored list, independent of how many words share the prefix.
+	 * 
+	 * @param cacheSize
+	 *            - number of completions to precompute per node
+	 * @throws IllegalArgumentException
+	 *             if cacheSize is negative
+	 */
+	public TrieAutocomplete(String[] terms, double[] weights, int cacheSize) {
+		this(terms, weights);
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("negative cache size: " + cacheSize);
+		}
+		myCacheSize = cacheSize;
+		if (cacheSize > 0) {
+			ForkJoinPool.commonPool().invoke(new TopWordsTask(myRoot, 0, cacheSize));
+		}
+	}
+
+	/**
+	 * Fills in myTopWords for every node of a subtrie, children first. The
+	 * children of shallow nodes are computed in parallel.
+	 */
+	@SuppressWarnings("serial")
+	private static class TopWordsTask extends RecursiveAction {
+		private final Node myNode;
+		private final int myDepth, mySize;
+
+		TopWordsTask(Node node, int depth, int size) {
+			myNode = node;
+			myDepth = depth;
+			mySize = size;
+		}
+
+		@Override
+		protected void compute() {
+			if (myDepth < PARALLEL_DEPTH) {
+				TopWordsTask[] tasks = new TopWordsTask[myNode.childCount()];
+				for (int c = 0; c < tasks.length; c++) {
+					tasks[c] = new TopWordsTask(myNode.childAt(c), myDepth + 1, mySize);
+				}
+				invokeAll(tasks);
+				merge(myNode, mySize);
+			} else {
+				build(myNode, mySize);
+			}
+		}
+
+		private static void build(Node node, int size) {
+			for (int c = 0; c < node.childCount(); c++) {
+				build(node.childAt(c), size);
+			}
+			merge(node, size);
+		}
+
+		/*
+		 * Combine the node's own word with its children's lists, which are
+		 * already computed. A non-word node with one child shares that child's
+		 * array, so long single-child chains cost no extra memory.
+		 */
+		private static void merge(Node node, int size) {
+			if (!node.isWord && node.childCount() == 1) {
+				node.myTopWords = node.childAt(0).myTopWords;
+				return;
+			}
+			Node[] top = node.isWord ? new Node[] { node } : new Node[0];
+			for (int c = 0; c < node.childCount(); c++) {
+				top = mergeTop(top, node.childAt(c).myTopWords, size);
+			}
+			node.myTopWords = top;
+		}
+
+		// merge two arrays sorted by descending weight, keeping at most size
+		private static Node[] mergeTop(Node[] a, Node[] b, int size) {
+			Node[] ret = new Node[Math.min(size, a.length + b.length)];
+			int i = 0, j = 0;
+			for (int n = 0; n < ret.length; n++) {
+				if (j >= b.length || (i < a.length && a[i].myWeight >= b[j].myWeight)) {
+					ret[n] = a[i++];
+				} else {
+					ret[n] = b[j++];
+				}
+			}
+			return ret;
+		}
 	}
 
 	/**
@@ -77,11 +183,13 @@ public class TrieAutocomplete implements Autocompletor {
 		Node current = myRoot; 
 		for (int k = 0; k < word.length(); k++) { //loop through chars in word
 			char ch = word.charAt(k);
-			if (current.children.get(ch) == null) { //char is not there
-				current.children.put(ch, new Node(ch, current, weight)); //add node for char
+			Node next = current.getChild(ch);
+			if (next == null) { //char is not there
+				next = new Node(ch, current, weight);
+				current.putChild(ch, next); //add node for char
 			}
 			current.mySubtreeMaxWeight = Math.max(weight, current.mySubtreeMaxWeight); //set mySubtreeMaxWeight to max or new weight (biggest)
-			current = current.children.get(ch); //next node
+			current = next; //next node
 			if (k + 1 == word.length()) { //last letter in word
 				current.isWord = true; //set fields
 				current.myWeight = weight;
@@ -111,32 +219,87 @@ public class TrieAutocomplete implements Autocompletor {
 	 *             NullPointerException if prefix is null
 	 */
 	public Iterable<String> topMatches(String prefix, int k) {
+		LinkedList<String> ret = new LinkedList<String>(); //new list
+		for (Term t : topMatchesWithWeights(prefix, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as topMatches, but the words come with their weights.
+	 * 
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String prefix, int k) {
 		if (prefix == null) {
 			throw new NullPointerException("No prefix given"); //exception if no prefix given
 		}
 		if (k <= 0) {
-			return new LinkedList<String>();
+			return new LinkedList<Term>();
 		}
+		return topTerms(find(prefix), k);
+	}
+
+	/**
+	 * Same as topMatchesWithWeights, into results; allocates nothing once
+	 * results has grown to the size of the search. Stops early, with
+	 * results.isComplete() false, if the search exceeds results' budget.
+	 * 
+	 * @throws a
+	 *             NullPointerException if prefix is null
+	 */
+	@Override
+	public int topMatches(String prefix, MatchBuffer results) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given"); //exception if no prefix given
+		}
+		return topTerms(find(prefix), results);
+	}
+
+	/**
+	 * Return the Node for the last character of prefix, or null if no word
+	 * starts with prefix.
+	 */
+	protected Node find(String prefix) {
 		Node current = myRoot; //start with root
-		LinkedList<String> ret = new LinkedList<String>(); //new list
-		
-		for (int i = 0; i < prefix.length(); i++) { //loop through characters in prefix
-			char letter = prefix.charAt(i);
-			if (!current.children.containsKey(letter)){ //if character not in map return empty list
-				return ret;
+		for (int i = 0; i < prefix.length() && current != null; i++) { //loop through characters in prefix
+			current = current.getChild(prefix.charAt(i)); //node is last letter of prefix
+		}
+		return current;
+	}
+
+	/**
+	 * The k heaviest words in the subtrie rooted at current, heaviest first.
+	 * Empty if current is null.
+	 */
+	protected LinkedList<Term> topTerms(Node current, int k) {
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (current == null) { //prefix not in trie
+			return ret;
+		}
+		if (k <= myCacheSize) { //answer is precomputed
+			Node[] top = current.myTopWords;
+			for (int i = 0; i < Math.min(k, top.length); i++) {
+				ret.add(new Term(top[i].getWord(), top[i].getWeight()));
 			}
-			current = current.children.get(letter); //node is last letter of prefix
+			QueryWork.add(ret.size());
+			return ret;
 		}
 		
 		PriorityQueue<Node> nodePQ = new PriorityQueue<Node>(new Node.ReverseSubtreeMaxWeightComparator()); //queue for all terms
 		PriorityQueue<Term> tPQ = new PriorityQueue<Term>(k, new Term.WeightOrder()); //selective queue
 		nodePQ.add(current);
+		int visited = 0;
 		while (nodePQ.size() > 0) {
 			if (tPQ.size() >= k && tPQ.peek().getWeight() > nodePQ.peek().mySubtreeMaxWeight) { //no bigger weights to be had and queue is full
 				break;
 			}
 			Node top = nodePQ.peek();
 			nodePQ.remove(); //take out next item
+			visited++;
 			if (top.isWord) { //must be word
 				tPQ.add(new Term(top.getWord(), top.getWeight())); //add to selective queue
 			}
@@ -144,17 +307,61 @@ public class TrieAutocomplete implements Autocompletor {
 				tPQ.remove();	//removes smallest
 			}
 
-			for(Node n : top.children.values()) { //explore children
-				nodePQ.add(n);
+			for (int c = 0; c < top.childCount(); c++) { //explore children
+				nodePQ.add(top.childAt(c));
 			}
 		}
+		QueryWork.add(visited);
 		int num = Math.min(k, tPQ.size()); //can only be as big as the queue
 		for (int l = 0; l < num; l++){
-			ret.addFirst(tPQ.remove().getWord()); //add for return
+			ret.addFirst(tPQ.remove()); //add for return
 		}
 		return ret;
 	}
 
+	/**
+	 * Same as topTerms(current, results.capacity()), into results. The search
+	 * queue is the buffer's frontier and the results are selected in the
+	 * buffer itself. Each node taken off the queue is charged to the buffer's
+	 * budget; when it runs out the search stops with the results so far.
+	 */
+	protected int topTerms(Node current, MatchBuffer results) {
+		results.clear();
+		int k = results.capacity();
+		if (current == null || k == 0) { //prefix not in trie
+			return 0;
+		}
+		if (k <= myCacheSize) { //answer is precomputed
+			Node[] top = current.myTopWords;
+			for (int i = 0; i < Math.min(k, top.length); i++) {
+				results.add(top[i].getWord(), top[i].getWeight());
+			}
+			QueryWork.add(results.size());
+			return results.size();
+		}
+		results.push(current, current.mySubtreeMaxWeight);
+		int visited = 0;
+		while (results.hasFrontier() && results.threshold() <= results.topPriority()) { //same stop as topTerms
+			if (results.spend()) { //out of budget: nothing left is heavier than the top of the queue
+				results.stop(results.topPriority());
+				break;
+			}
+			Node top = (Node) results.pop();
+			visited++;
+			if (top.isWord) {
+				results.offer(top.getWord(), top.getWeight());
+			}
+			for (int c = 0; c < top.childCount(); c++) {
+				Node child = top.childAt(c);
+				if (results.threshold() <= child.mySubtreeMaxWeight) { //skip subtries too light to matter
+					results.push(child, child.mySubtreeMaxWeight);
+				}
+			}
+		}
+		QueryWork.add(visited);
+		return results.sort();
+	}
+
 	/**
 	 * Given a prefix, returns the largest-weight word in the trie starting with
 	 * that prefix.
@@ -170,36 +377,254 @@ public class TrieAutocomplete implements Autocompletor {
 		if (prefix == null) {
 			throw new NullPointerException("No prefix given"); //exception if no prefix given
 		}
-		Node current = myRoot; //start with root
-		for (int k = 0; k < prefix.length(); k++) { //for letter in prefix
-			if (!current.children.containsKey(prefix.charAt(k))) { //no such letter
-				return "";
-			}
-			current = current.children.get(prefix.charAt(k)); //go to that letter
+		return topWord(find(prefix));
+	}
+
+	/**
+	 * The heaviest word in the subtrie rooted at current, or an empty string if
+	 * current is null.
+	 */
+	protected String topWord(Node current) {
+		if (current == null) { //no such prefix
+			return "";
+		}
+		if (myCacheSize > 0) { //answer is precomputed
+			return current.myTopWords.length == 0 ? "" : current.myTopWords[0].getWord();
 		}
 		while (current.mySubtreeMaxWeight != current.myWeight) { //until node has max subtree weight
-			for (Node no : current.children.values()) { //check each child node
+			Node next = current;
+			for (int c = 0; c < current.childCount(); c++) { //check each child node
+				Node no = current.childAt(c);
 				if (current.mySubtreeMaxWeight == no.mySubtreeMaxWeight) { //pick node with max weight
-					current = no;
+					next = no;
+					break;
 				}
 			}
-
+			current = next;
 		}
 		return current.getWord();
 	}
 
+	/**
+	 * Largest maxEdits accepted by fuzzyTopMatches. The number of trie nodes
+	 * within a given edit distance of a prefix grows quickly with the distance.
+	 */
+	public static final int MAX_EDITS = 2;
+
+	/**
+	 * Typo-tolerant topMatches: the k heaviest words that start with a string
+	 * within maxEdits insertions, deletions or substitutions of prefix. Words
+	 * needing fewer edits come first, heaviest first among words needing the
+	 * same number, so exact completions always beat corrections.
+	 *
+	 * The trie is walked with the rows of the Levenshtein dynamic program,
+	 * which is the Levenshtein automaton for prefix run one trie character at
+	 * a time; a subtrie is abandoned as soon as no entry of its row is within
+	 * maxEdits. Every node whose string is within maxEdits of prefix roots a
+	 * subtrie of matches, and the top k are taken from those subtries with the
+	 * same mySubtreeMaxWeight search as topMatches.
+	 *
+	 * @throws NullPointerException
+	 *             if prefix is null
+	 * @throws IllegalArgumentException
+	 *             if maxEdits is negative or more than MAX_EDITS
+	 */
+	public Iterable<Term> fuzzyTopMatches(String prefix, int maxEdits, int k) {
+		if (prefix == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+			throw new IllegalArgumentException("maxEdits must be between 0 and " + MAX_EDITS + ", not " + maxEdits);
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (k <= 0) {
+			return ret;
+		}
+		// roots.get(d) are the nodes at distance d from prefix, none inside another at distance <= d
+		ArrayList<ArrayList<Node>> roots = new ArrayList<ArrayList<Node>>();
+		for (int d = 0; d <= maxEdits; d++) {
+			roots.add(new ArrayList<Node>());
+		}
+		int[] row = new int[prefix.length() + 1];
+		for (int j = 0; j < row.length; j++) {
+			row[j] = j;
+		}
+		collectFuzzyRoots(myRoot, prefix, row, maxEdits, maxEdits + 1, roots);
+
+		HashSet<String> found = new HashSet<String>();
+		for (int d = 0; d <= maxEdits && ret.size() < k; d++) {
+			for (Term t : topTerms(roots.get(d), k - ret.size(), found)) {
+				found.add(t.getWord());
+				ret.add(t);
+			}
+		}
+		return ret;
+	}
+
+	/*
+	 * row is the Levenshtein row of node's string against prefix: row[j] is
+	 * the distance to the first j characters of prefix. covered is the
+	 * smallest distance of a root already enclosing node.
+	 */
+	private static void collectFuzzyRoots(Node node, String prefix, int[] row, int maxEdits, int covered,
+			ArrayList<ArrayList<Node>> roots) {
+		int distance = row[prefix.length()];
+		if (distance < covered) {
+			roots.get(distance).add(node);
+			covered = distance;
+		}
+		int best = row[0];
+		for (int d : row) {
+			best = Math.min(best, d);
+		}
+		if (best >= covered) { // nothing below can get closer than the enclosing root
+			return;
+		}
+		for (int c = 0; c < node.childCount(); c++) {
+			Node child = node.childAt(c);
+			int[] next = new int[row.length];
+			next[0] = row[0] + 1;
+			int min = next[0];
+			for (int j = 1; j < row.length; j++) {
+				int substitute = row[j - 1] + (prefix.charAt(j - 1) == child.myInfo ? 0 : 1);
+				next[j] = Math.min(substitute, Math.min(row[j], next[j - 1]) + 1);
+				min = Math.min(min, next[j]);
+			}
+			if (min <= maxEdits) {
+				collectFuzzyRoots(child, prefix, next, maxEdits, covered, roots);
+			}
+		}
+	}
+
+	/**
+	 * The k heaviest words in the subtries rooted at roots, heaviest first,
+	 * leaving out words in exclude.
+	 */
+	private static LinkedList<Term> topTerms(ArrayList<Node> roots, int k, Set<String> exclude) {
+		PriorityQueue<Node> nodePQ = new PriorityQueue<Node>(new Node.ReverseSubtreeMaxWeightComparator());
+		PriorityQueue<Term> tPQ = new PriorityQueue<Term>(k, new Term.WeightOrder());
+		nodePQ.addAll(roots);
+		int visited = 0;
+		while (nodePQ.size() > 0) {
+			if (tPQ.size() >= k && tPQ.peek().getWeight() > nodePQ.peek().mySubtreeMaxWeight) {
+				break;
+			}
+			Node top = nodePQ.remove();
+			visited++;
+			if (top.isWord && !exclude.contains(top.getWord())) {
+				tPQ.add(new Term(top.getWord(), top.getWeight()));
+				if (tPQ.size() > k) {
+					tPQ.remove();
+				}
+			}
+			for (int c = 0; c < top.childCount(); c++) {
+				nodePQ.add(top.childAt(c));
+			}
+		}
+		QueryWork.add(visited);
+		LinkedList<Term> ret = new LinkedList<Term>();
+		while (tPQ.size() > 0) {
+			ret.addFirst(tPQ.remove());
+		}
+		return ret;
+	}
+
+	/**
+	 * Session that keeps the Node of every prefix of the current text, so
+	 * append is one child lookup and backspace is a pop.
+	 */
+	private class TrieSession extends AutocompleteSession {
+		// myPath.get(i) is the Node for the first i characters, null if none
+		private final ArrayList<Node> myPath = new ArrayList<Node>();
+
+		TrieSession() {
+			super(TrieAutocomplete.this);
+			myPath.add(myRoot);
+		}
+
+		@Override
+		public void append(char ch) {
+			super.append(ch);
+			Node last = myPath.get(myPath.size() - 1);
+			myPath.add(last == null ? null : last.getChild(ch));
+		}
+
+		@Override
+		public void backspace() {
+			if (myPrefix.length() > 0) {
+				super.backspace();
+				myPath.remove(myPath.size() - 1);
+			}
+		}
+
+		@Override
+		public Iterable<Term> topMatchesWithWeights(int k) {
+			if (k <= 0) {
+				return new LinkedList<Term>();
+			}
+			return topTerms(myPath.get(myPath.size() - 1), k);
+		}
+
+		@Override
+		public int topMatches(MatchBuffer results) {
+			return topTerms(myPath.get(myPath.size() - 1), results);
+		}
+
+		@Override
+		public String topMatch() {
+			return topWord(myPath.get(myPath.size() - 1));
+		}
+	}
+
+	@Override
+	public AutocompleteSession startSession() {
+		return new TrieSession();
+	}
+
 	/**
 	 * Return the weight of a given term. If term is not in the dictionary, return
 	 * 0.0
 	 */
 	public double weightOf(String term) {
-		Node current = myRoot;
-		for (int j = 0; j < term.length(); j++) {
-			if (!current.children.containsKey(term.charAt(j))){ //character does not exist
-				return 0.0;
-			}
-			current = current.children.get(term.charAt(j)); //move to next character
+		Node current = find(term);
+		if (current == null || !current.isWord){ //no such word, at most a prefix of one
+			return 0.0;
 		}
 		return current.getWeight();
 	}
+
+	/**
+	 * Number of nodes in the trie, including the root.
+	 */
+	public long nodeCount() {
+		return countNodes(myRoot);
+	}
+
+	private static long countNodes(Node node) {
+		long ret = 1;
+		for (int c = 0; c < node.childCount(); c++) {
+			ret += countNodes(node.childAt(c));
+		}
+		return ret;
+	}
+
+	public long estimatedBytes() {
+		return estimatedBytes(myRoot);
+	}
+
+	private long estimatedBytes(Node node) {
+		// char, boolean, 6 references, 2 doubles, int
+		long ret = IndexStats.objectBytes(43) + IndexStats.arrayBytes(node.myKeys.length, 2)
+				+ IndexStats.arrayBytes(node.myChildren.length, 4);
+		if (node.isWord) {
+			ret += IndexStats.stringBytes(node.myWord);
+		}
+		if (node.myTopWords != null && (node.childCount() != 1 || node.isWord)) { // otherwise shared with the child
+			ret += IndexStats.arrayBytes(node.myTopWords.length, 4);
+		}
+		for (int c = 0; c < node.childCount(); c++) {
+			ret += estimatedBytes(node.childAt(c));
+		}
+		return ret;
+	}
 }
@@ -0,0 +1,308 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Autocompletor for multi-word terms such as "Bank of America Corp.": the
+ * query is split into tokens, and a term matches if every token is a prefix
+ * of some word of the term, so "am ba" and "bank amer" both find it. Words
+ * are runs of letters and digits; anything else separates them. Terms and
+ * queries are compared after TermNormalizer.FOLD, so matching ignores case
+ * and accents; weightOf still takes the term exactly as given.
+ *
+ * Term ids are ranks by weight, heaviest first, and every distinct word has
+ * a posting list of the ids of the terms containing it, in increasing order.
+ * The words starting with a token are a range of the sorted vocabulary, so a
+ * token's candidates are the union of a range of posting lists. The token
+ * with the fewest candidates drives the query: its candidates are produced
+ * in id order, i.e. heaviest first, each is checked against the other tokens
+ * by looking at the term's own words, and the query stops at the k-th
+ * match. When a token's candidates are so dense that merging its lists would
+ * cost more than checking terms in id order, the terms are checked in id
+ * order instead.
+ */
+public class WordStartAutocomplete implements Autocompletor {
+
+	/**
+	 * Terms by id: heaviest first.
+	 */
+	private final Term[] myTerms;
+
+	/**
+	 * The folded form of each term, by id, which queries are matched against.
+	 */
+	private final String[] myKeys;
+
+	/**
+	 * Term ids in order of word, for weightOf.
+	 */
+	private final int[] myByWord;
+
+	/**
+	 * The distinct words of all terms, sorted. The posting list of
+	 * myWords[w] is myPostings[myPostingStart[w], myPostingStart[w + 1]).
+	 */
+	private final String[] myWords;
+	private final int[] myPostingStart;
+	private final int[] myPostings;
+
+	/**
+	 * @throws NullPointerException
+	 *             if either argument is null
+	 * @throws IllegalArgumentException
+	 *             if terms and weights are different length, terms contains
+	 *             duplicates or any weight is negative
+	 */
+	public WordStartAutocomplete(String[] terms, double[] weights) {
+		if (terms == null || weights == null) {
+			throw new NullPointerException("One or more arguments null");
+		}
+		if (terms.length != weights.length) {
+			throw new IllegalArgumentException("terms and weights are not the same length");
+		}
+		Set<String> wordsDups = new HashSet<String>(Arrays.asList(terms));
+		if (wordsDups.size() != terms.length) {
+			throw new IllegalArgumentException("terms contains duplicates");
+		}
+		int n = terms.length;
+		myTerms = new Term[n];
+		for (int i = 0; i < n; i++) {
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("negative weight " + weights[i]);
+			}
+			myTerms[i] = new Term(terms[i], weights[i]);
+		}
+		Arrays.sort(myTerms, (a, b) -> a.getWeight() != b.getWeight() ? Double.compare(b.getWeight(), a.getWeight())
+				: a.getWord().compareTo(b.getWord()));
+		Integer[] byWord = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			byWord[i] = i;
+		}
+		Arrays.sort(byWord, (a, b) -> myTerms[a].getWord().compareTo(myTerms[b].getWord()));
+		myByWord = new int[n];
+		for (int i = 0; i < n; i++) {
+			myByWord[i] = byWord[i];
+		}
+
+		myKeys = new String[n];
+		for (int id = 0; id < n; id++) {
+			myKeys[id] = TermNormalizer.FOLD.normalize(myTerms[id].getWord());
+		}
+
+		// ids are visited in increasing order, so every list comes out sorted
+		HashMap<String, ArrayList<Integer>> lists = new HashMap<String, ArrayList<Integer>>();
+		int postings = 0;
+		for (int id = 0; id < n; id++) {
+			for (String word : new HashSet<String>(words(myKeys[id]))) {
+				lists.computeIfAbsent(word, w -> new ArrayList<Integer>()).add(id);
+				postings++;
+			}
+		}
+		myWords = lists.keySet().toArray(new String[0]);
+		Arrays.sort(myWords);
+		myPostingStart = new int[myWords.length + 1];
+		myPostings = new int[postings];
+		for (int w = 0; w < myWords.length; w++) {
+			ArrayList<Integer> list = lists.get(myWords[w]);
+			myPostingStart[w + 1] = myPostingStart[w] + list.size();
+			for (int i = 0; i < list.size(); i++) {
+				myPostings[myPostingStart[w] + i] = list.get(i);
+			}
+		}
+	}
+
+	private static boolean isWordChar(char ch) {
+		return Character.isLetterOrDigit(ch);
+	}
+
+	/**
+	 * The words of s, in order.
+	 */
+	static ArrayList<String> words(String s) {
+		ArrayList<String> ret = new ArrayList<String>();
+		int i = 0;
+		while (i < s.length()) {
+			while (i < s.length() && !isWordChar(s.charAt(i))) {
+				i++;
+			}
+			int start = i;
+			while (i < s.length() && isWordChar(s.charAt(i))) {
+				i++;
+			}
+			if (i > start) {
+				ret.add(s.substring(start, i));
+			}
+		}
+		return ret;
+	}
+
+	// whether some word of term starts with token
+	private static boolean hasWordStartingWith(String term, String token) {
+		for (int i = 0; i + token.length() <= term.length(); i++) {
+			if ((i == 0 || !isWordChar(term.charAt(i - 1))) && term.startsWith(token, i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// first index in myWords of a word starting with token, or where it would be
+	private int firstWord(String token) {
+		int low = -1, high = myWords.length;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (BinarySearchAutocomplete.comparePrefix(token, myWords[mid]) <= 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return high;
+	}
+
+	// one past the last index in myWords of a word starting with token
+	private int endWord(String token) {
+		int low = -1, high = myWords.length;
+		while (low + 1 != high) {
+			int mid = (low + high) >>> 1;
+			if (BinarySearchAutocomplete.comparePrefix(token, myWords[mid]) < 0) {
+				high = mid;
+			} else {
+				low = mid;
+			}
+		}
+		return high;
+	}
+
+	public Iterable<String> topMatches(String query, int k) {
+		LinkedList<String> ret = new LinkedList<String>();
+		for (Term t : topMatchesWithWeights(query, k)) {
+			ret.add(t.getWord());
+		}
+		return ret;
+	}
+
+	/**
+	 * The k heaviest terms in which every token of query starts a word,
+	 * ignoring case and accents, heaviest first. A query without tokens
+	 * matches every term.
+	 *
+	 * @throws NullPointerException
+	 *             if query is null
+	 */
+	@Override
+	public Iterable<Term> topMatchesWithWeights(String query, int k) {
+		if (query == null) {
+			throw new NullPointerException("No prefix given");
+		}
+		LinkedList<Term> ret = new LinkedList<Term>();
+		if (k <= 0) {
+			return ret;
+		}
+		ArrayList<String> tokens = words(TermNormalizer.FOLD.normalize(query));
+		if (tokens.isEmpty()) {
+			for (int id = 0; id < Math.min(k, myTerms.length); id++) {
+				ret.add(myTerms[id]);
+			}
+			return ret;
+		}
+
+		// the token whose word range has the fewest postings drives
+		int driver = -1, lo = 0, hi = 0;
+		for (int t = 0; t < tokens.size(); t++) {
+			int first = firstWord(tokens.get(t));
+			int end = endWord(tokens.get(t));
+			if (driver < 0 || myPostingStart[end] - myPostingStart[first] < myPostingStart[hi] - myPostingStart[lo]) {
+				driver = t;
+				lo = first;
+				hi = end;
+			}
+		}
+		long candidates = myPostingStart[hi] - myPostingStart[lo];
+		if (candidates == 0) {
+			return ret;
+		}
+		String driverToken = tokens.get(driver);
+		tokens.remove(driver);
+		int examined = 0;
+		if ((long) k * myTerms.length < candidates * (hi - lo)) {
+			// dense: expect a match every n / candidates ids, cheaper than merging hi - lo lists
+			for (int id = 0; id < myTerms.length && ret.size() < k; id++) {
+				examined++;
+				String key = myKeys[id];
+				if (hasWordStartingWith(key, driverToken) && matchesAll(key, tokens)) {
+					ret.add(myTerms[id]);
+				}
+			}
+		} else {
+			// each entry is {next posting index, end of list}, smallest posting first
+			PriorityQueue<int[]> cursors = new PriorityQueue<int[]>(hi - lo,
+					(a, b) -> Integer.compare(myPostings[a[0]], myPostings[b[0]]));
+			for (int w = lo; w < hi; w++) {
+				cursors.add(new int[] { myPostingStart[w], myPostingStart[w + 1] });
+			}
+			int last = -1;
+			while (!cursors.isEmpty() && ret.size() < k) {
+				int[] cursor = cursors.remove();
+				int id = myPostings[cursor[0]++];
+				if (cursor[0] < cursor[1]) {
+					cursors.add(cursor);
+				}
+				if (id == last) { // the term has several words starting with the token
+					continue;
+				}
+				last = id;
+				examined++;
+				if (matchesAll(myKeys[id], tokens)) {
+					ret.add(myTerms[id]);
+				}
+			}
+		}
+		QueryWork.add(examined);
+		return ret;
+	}
+
+	private static boolean matchesAll(String term, ArrayList<String> tokens) {
+		for (String token : tokens) {
+			if (!hasWordStartingWith(term, token)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @throws NullPointerException
+	 *             if query is null
+	 */
+	public String topMatch(String query) {
+		for (Term t : topMatchesWithWeights(query, 1)) {
+			return t.getWord();
+		}
+		return "";
+	}
+
+	/**
+	 * Return the weight of a given term. If term is not in the dictionary, return
+	 * 0.0
+	 */
+	public double weightOf(String term) {
+		int low = 0, high = myByWord.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = myTerms[myByWord[mid]].getWord().compareTo(term);
+			if (cmp == 0) {
+				return myTerms[myByWord[mid]].getWeight();
+			} else if (cmp < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return 0.0;
+	}
+}
@@ -0,0 +1,60 @@
+/**
+ *	Receives progress and timing callbacks from a HuffProcessor while
+ *	it compresses or decompresses. Register one with
+ *	HuffProcessor.addListener to see which phase of the codec dominates
+ *	and how fast bits are moving through it.
+ *
+ *	All callbacks are made on the thread running compress/decompress,
+ *	so implementations should return quickly.
+ */
+
+public interface HuffListener {
+
+	/**
+	 * The separately timed phases of compression and decompression.
+	 * Compression runs HISTOGRAM, TREE, HEADER, ENCODE in that order;
+	 * decompression runs HEADER (reading the tree) and then DECODE.
+	 */
+	public enum Phase {
+		HISTOGRAM, TREE, HEADER, ENCODE, DECODE
+	};
+
+	/**
+	 * Called once before any bits are read.
+	 *
+	 * @param compressing
+	 *            true for compress, false for decompress
+	 */
+	public void started(boolean compressing);
+
+	/**
+	 * Called when a phase finishes.
+	 *
+	 * @param phase
+	 *            the phase that just finished
+	 * @param nanos
+	 *            wall-clock time spent in that phase
+	 */
+	public void phaseComplete(Phase phase, long nanos);
+
+	/**
+	 * Called periodically while a phase streams through the input, so
+	 * live throughput can be computed.
+	 *
+	 * @param bitsRead
+	 *            bits read from the input since the current phase began
+	 */
+	public void progress(int bitsRead);
+
+	/**
+	 * Called once after the last bit is written.
+	 *
+	 * @param bytesIn
+	 *            number of bytes consumed from the input
+	 * @param bytesOut
+	 *            number of bytes produced on the output
+	 * @param nanos
+	 *            total wall-clock time for the operation
+	 */
+	public void finished(long bytesIn, long bytesOut, long nanos);
+}
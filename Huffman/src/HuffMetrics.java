@@ -0,0 +1,163 @@
+/**
+ *	HuffListener that keeps the numbers from the most recent
+ *	compress/decompress and exposes them as a JMX MBean, e.g.
+ *
+ *		HuffMetrics metrics = new HuffMetrics();
+ *		metrics.register();
+ *		processor.addListener(metrics);
+ *
+ *	Values are written by the codec thread and read by JMX threads,
+ *	so every field is volatile and the phase times are an
+ *	AtomicLongArray; no locking is done on the codec path.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class HuffMetrics implements HuffListener, HuffMetricsMBean {
+
+	public static final String OBJECT_NAME = "HuffProcessor:type=HuffMetrics";
+
+	private volatile long myOperations;
+	private volatile long myBytesIn, myBytesOut;
+	private volatile long myBitsRead;
+	private volatile long myStart, myPassStart;
+	private volatile long myTotalNanos;
+	private final AtomicLongArray myPhaseNanos = new AtomicLongArray(Phase.values().length);
+
+	/**
+	 * Register this instance with the platform MBean server under
+	 * OBJECT_NAME.
+	 *
+	 * @throws HuffException
+	 *             if registration fails, e.g. the name is already taken
+	 */
+	public void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			throw new HuffException("could not register metrics: " + e.getMessage());
+		}
+	}
+
+	public void started(boolean compressing) {
+		for (int k = 0; k < myPhaseNanos.length(); k++) {
+			myPhaseNanos.set(k, 0);
+		}
+		myBytesIn = myBytesOut = myBitsRead = myTotalNanos = 0;
+		myStart = myPassStart = System.nanoTime();
+	}
+
+	public void phaseComplete(Phase phase, long nanos) {
+		myPhaseNanos.set(phase.ordinal(), nanos);
+		myPassStart = System.nanoTime(); // progress restarts with every phase
+		myBitsRead = 0;
+	}
+
+	public void progress(int bitsRead) {
+		myBitsRead = bitsRead;
+	}
+
+	public void finished(long bytesIn, long bytesOut, long nanos) {
+		myBytesIn = bytesIn;
+		myBytesOut = bytesOut;
+		myTotalNanos = nanos;
+		myOperations++;
+	}
+
+	public long getOperations() {
+		return myOperations;
+	}
+
+	public long getBytesIn() {
+		return myBytesIn;
+	}
+
+	public long getBytesOut() {
+		return myBytesOut;
+	}
+
+	public long getBitsRead() {
+		return myBitsRead;
+	}
+
+	public double getHistogramMillis() {
+		return millis(Phase.HISTOGRAM);
+	}
+
+	public double getTreeMillis() {
+		return millis(Phase.TREE);
+	}
+
+	public double getHeaderMillis() {
+		return millis(Phase.HEADER);
+	}
+
+	public double getEncodeMillis() {
+		return millis(Phase.ENCODE);
+	}
+
+	public double getDecodeMillis() {
+		return millis(Phase.DECODE);
+	}
+
+	public double getTotalMillis() {
+		return myTotalNanos / 1e6;
+	}
+
+	/**
+	 * Bytes per second through the pass currently running, based on the
+	 * last progress report. Zero before anything has been read.
+	 */
+	public double getThroughput() {
+		long elapsed = System.nanoTime() - myPassStart;
+		if (elapsed <= 0) {
+			return 0;
+		}
+		return (myBitsRead / 8.0) / (elapsed / 1e9);
+	}
+
+	/**
+	 * Input bytes per second over the whole of the last finished
+	 * operation.
+	 */
+	public double getLastThroughput() {
+		if (myTotalNanos == 0) {
+			return 0;
+		}
+		return myBytesIn / (myTotalNanos / 1e9);
+	}
+
+	/**
+	 * The phase that took the most time in the last operation.
+	 */
+	public String getDominantPhase() {
+		Phase max = Phase.HISTOGRAM;
+		for (Phase p : Phase.values()) {
+			if (myPhaseNanos.get(p.ordinal()) > myPhaseNanos.get(max.ordinal())) {
+				max = p;
+			}
+		}
+		return max.toString();
+	}
+
+	public void reset() {
+		started(true);
+		myOperations = 0;
+	}
+
+	private double millis(Phase phase) {
+		return myPhaseNanos.get(phase.ordinal()) / 1e6;
+	}
+
+	public String toString() {
+		return String.format("in=%d out=%d hist=%.1fms tree=%.1fms header=%.1fms encode=%.1fms decode=%.1fms total=%.1fms",
+				myBytesIn, myBytesOut, getHistogramMillis(), getTreeMillis(), getHeaderMillis(), getEncodeMillis(),
+				getDecodeMillis(), getTotalMillis());
+	}
+}
@@ -0,0 +1,36 @@
+/**
+ *	JMX management interface for HuffMetrics. Times are reported in
+ *	milliseconds for the most recent operation, throughput in bytes
+ *	per second.
+ */
+
+public interface HuffMetricsMBean {
+
+	public long getOperations();
+
+	public long getBytesIn();
+
+	public long getBytesOut();
+
+	public long getBitsRead();
+
+	public double getHistogramMillis();
+
+	public double getTreeMillis();
+
+	public double getHeaderMillis();
+
+	public double getEncodeMillis();
+
+	public double getDecodeMillis();
+
+	public double getTotalMillis();
+
+	public double getThroughput();
+
+	public double getLastThroughput();
+
+	public String getDominantPhase();
+
+	public void reset();
+}
@@ -1,3 +1,5 @@
+import java.util.ArrayList;
+import java.util.List;
 import java.util.PriorityQueue;
 
 /**
@@ -26,6 +28,11 @@ public class HuffProcessor {
 
 	public Header myHeader = Header.TREE_HEADER;
 
+	// listeners are told about progress every this many 8-bit chunks
+	private static final int PROGRESS_INTERVAL = 1 << 16;
+
+	private List<HuffListener> myListeners = new ArrayList<>();
+
 	private int[] readForCounts(BitInputStream in) { //creating array with freqs of chars
 		int[] counts = new int[256]; //arrays with space for all values
 		int val = 0;
@@ -35,13 +42,14 @@ public class HuffProcessor {
 			charCount++;
 			if (val != -1) { //til end of file
 				counts[val] += 1; //add 1 for each char of that type
+				if (charCount % PROGRESS_INTERVAL == 0) {
+					fireProgress(in.bitsRead());
+				}
 			}
 			else { //end of file
 				break;
 			}
 		}
-		System.out.println("file length:");
-		System.out.println(charCount - 1);
 		return counts;
 	}
 	
@@ -118,6 +126,9 @@ public class HuffProcessor {
 			if (val != -1) { //file is not finished
 			String encode = paths[val]; //string of path
 			out.writeBits(encode.length(), Integer.parseInt(encode,2)); //write path to file in bits
+			if (in.bitsRead() % (PROGRESS_INTERVAL * BITS_PER_WORD) == 0) {
+				fireProgress(in.bitsRead());
+			}
 			}
 			else { //file is finished
 				break;
@@ -136,25 +147,25 @@ public class HuffProcessor {
 	 *            Buffered bit stream writing to the output file.
 	 */
 	public void compress(BitInputStream in, BitOutputStream out){
-		double cStart =  System.nanoTime();
+		fireStarted(true);
+		long cStart = System.nanoTime();
 		int[] counts = readForCounts(in); //create freq array
-		int counter = 0;
+		long bytesIn = 0;
 		for (int l = 0; l < counts.length; l++) {
-			if (counts[l] != 0) {
-				counter += 1;
-			}
+			bytesIn += counts[l]; //file length is sum of freqs
 		}
-		//System.out.println("Alph size is:");
-		//System.out.println(counter);
+		long phaseEnd = firePhase(HuffListener.Phase.HISTOGRAM, cStart);
 		HuffNode root = makeTreeFromCounts(counts); //build tree
 		String[] paths = makeCodingsFromTree(root); //create paths array
+		phaseEnd = firePhase(HuffListener.Phase.TREE, phaseEnd);
+		int outStart = out.bitsWritten();
 		writeHeader(root, out); //write magic number and tree in start of file
+		phaseEnd = firePhase(HuffListener.Phase.HEADER, phaseEnd);
 		in.reset(); //reset file reading
 		writeCompressedBits(in, paths, out); //write new compressed file using paths
-		double cEnd =  System.nanoTime();
-		//System.out.println("time to compress:");
-		double cTime =  (cEnd-cStart)/1e9;
-		//System.out.println(cTime);
+		long cEnd = firePhase(HuffListener.Phase.ENCODE, phaseEnd);
+		long bitsOut = out.bitsWritten() - outStart;
+		fireFinished(bytesIn, (bitsOut + BITS_PER_WORD - 1) / BITS_PER_WORD, cEnd - cStart);
 	}
 
 	private HuffNode readTreeHeader(BitInputStream in) { //rebuild tree using the header
@@ -175,6 +186,8 @@ public class HuffProcessor {
 	
 	private void readCompressedBits(HuffNode root, BitInputStream in, BitOutputStream out) { //read compressed file and write to new file
 		HuffNode current = root;
+		int phaseStart = in.bitsRead(); // progress counts this phase's bits only, not the header's
+		int nextProgress = phaseStart + PROGRESS_INTERVAL * BITS_PER_WORD;
 		while (true) {
 			if (current.value() != -1) { //leaf node storing character
 				if (current.value() == PSEUDO_EOF) { //end of file character
@@ -182,6 +195,10 @@ public class HuffProcessor {
 				}
 				out.write(current.value()); //otherwise write in character
 				current = root; //reset
+				if (in.bitsRead() >= nextProgress) {
+					fireProgress(in.bitsRead() - phaseStart);
+					nextProgress += PROGRESS_INTERVAL * BITS_PER_WORD;
+				}
 			} //otherwise it is an internal node
 			int val = in.readBits(1);
 			if (val == -1) { //no more to read
@@ -207,7 +224,9 @@ public class HuffProcessor {
 	 *            Buffered bit stream writing to the output file.
 	 */
 	public void decompress(BitInputStream in, BitOutputStream out){
-		double dStart =  System.nanoTime();
+		fireStarted(false);
+		long dStart = System.nanoTime();
+		int outStart = out.bitsWritten();
 		/*
 		 * 1. check if file is compressed if file has magic number
 		 * 2. read magic number
@@ -220,13 +239,54 @@ public class HuffProcessor {
 		throw new HuffException("No magic number so file is not compressed");
 		}
 		HuffNode root = readTreeHeader(in); 
+		long phaseEnd = firePhase(HuffListener.Phase.HEADER, dStart);
 		readCompressedBits(root, in, out); //write decompressed file
-		double dEnd =  System.nanoTime();
-		System.out.println("time to decompress:");
-		double dTime =  (dEnd-dStart)/1e9;
-		System.out.println(dTime);
+		long dEnd = firePhase(HuffListener.Phase.DECODE, phaseEnd);
+		fireFinished(in.bitsRead() / BITS_PER_WORD, (out.bitsWritten() - outStart) / BITS_PER_WORD, dEnd - dStart);
 		}
-		
+
+	/**
+	 * Register a listener to be told about phase timings, progress and
+	 * byte counts of every subsequent compress/decompress.
+	 *
+	 * @param listener
+	 *            receives the callbacks, e.g. a HuffMetrics
+	 */
+	public void addListener(HuffListener listener) {
+		myListeners.add(listener);
+	}
+
+	public void removeListener(HuffListener listener) {
+		myListeners.remove(listener);
+	}
+
+	private void fireStarted(boolean compressing) {
+		for (HuffListener l : myListeners) {
+			l.started(compressing);
+		}
+	}
+
+	// reports the phase that began at start and returns the time it ended
+	private long firePhase(HuffListener.Phase phase, long start) {
+		long end = System.nanoTime();
+		for (HuffListener l : myListeners) {
+			l.phaseComplete(phase, end - start);
+		}
+		return end;
+	}
+
+	private void fireProgress(int bitsRead) {
+		for (HuffListener l : myListeners) {
+			l.progress(bitsRead);
+		}
+	}
+
+	private void fireFinished(long bytesIn, long bytesOut, long nanos) {
+		for (HuffListener l : myListeners) {
+			l.finished(bytesIn, bytesOut, nanos);
+		}
+	}
+
 
 	public void setHeader(Header header) {
 		myHeader = header;
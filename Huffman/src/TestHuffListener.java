@@ -0,0 +1,98 @@
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the callbacks HuffProcessor makes to its listeners, and the counts
+ * HuffMetrics keeps from them, over a compress/decompress round trip.
+ */
+public class TestHuffListener {
+
+	// bits between progress reports: HuffProcessor.PROGRESS_INTERVAL chunks of 8 bits
+	private static final int PROGRESS_BITS = (1 << 16) * HuffProcessor.BITS_PER_WORD;
+
+	private static class Recorder implements HuffListener {
+		ArrayList<String> events = new ArrayList<String>();
+		ArrayList<Integer> progress = new ArrayList<Integer>();
+		long bytesIn, bytesOut;
+
+		public void started(boolean compressing) {
+			events.add(compressing ? "compress" : "decompress");
+		}
+
+		public void phaseComplete(Phase phase, long nanos) {
+			assertTrue(nanos >= 0);
+			events.add(phase.toString());
+		}
+
+		public void progress(int bitsRead) {
+			progress.add(bitsRead);
+		}
+
+		public void finished(long bytesIn, long bytesOut, long nanos) {
+			events.add("finished");
+			this.bytesIn = bytesIn;
+			this.bytesOut = bytesOut;
+		}
+	}
+
+	private static byte[] text(int length) {
+		Random random = new Random(1234);
+		byte[] ret = new byte[length];
+		for (int i = 0; i < length; i++) {
+			ret[i] = (byte) ('a' + random.nextInt(26));
+		}
+		return ret;
+	}
+
+	@Test(timeout = 20000)
+	public void testRoundTrip() {
+		byte[] original = text(140000); // two progress reports while counting
+		HuffProcessor processor = new HuffProcessor();
+		Recorder recorder = new Recorder();
+		HuffMetrics metrics = new HuffMetrics();
+		processor.addListener(recorder);
+		processor.addListener(metrics);
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		BitOutputStream out = new BitOutputStream(compressed);
+		processor.compress(new BitInputStream(new ByteArrayInputStream(original)), out);
+		out.close();
+		assertEquals(Arrays.asList("compress", "HISTOGRAM", "TREE", "HEADER", "ENCODE", "finished"), recorder.events);
+		assertEquals(Arrays.asList(PROGRESS_BITS, 2 * PROGRESS_BITS), recorder.progress.subList(0, 2));
+		assertEquals(original.length, recorder.bytesIn);
+		assertEquals(compressed.size(), recorder.bytesOut);
+		assertEquals(1, metrics.getOperations());
+		assertEquals(original.length, metrics.getBytesIn());
+		assertEquals(compressed.size(), metrics.getBytesOut());
+
+		recorder.events.clear();
+		recorder.progress.clear();
+		ByteArrayOutputStream restored = new ByteArrayOutputStream();
+		out = new BitOutputStream(restored);
+		processor.decompress(new BitInputStream(new ByteArrayInputStream(compressed.toByteArray())), out);
+		out.close();
+		assertArrayEquals(original, restored.toByteArray());
+		assertEquals(Arrays.asList("decompress", "HEADER", "DECODE", "finished"), recorder.events);
+		assertFalse(recorder.progress.isEmpty());
+		// counted from the start of DECODE, so the header bits are not included
+		int first = recorder.progress.get(0);
+		assertTrue("first report at " + first, first >= PROGRESS_BITS && first < PROGRESS_BITS + 64);
+		assertEquals(original.length, recorder.bytesOut);
+		assertEquals(2, metrics.getOperations());
+		assertEquals(original.length, metrics.getBytesOut());
+		assertEquals(0, metrics.getEncodeMillis(), 0.0); // reset by the second operation
+		assertTrue(metrics.getTotalMillis() > 0);
+		assertTrue(metrics.getLastThroughput() > 0);
+
+		metrics.reset();
+		assertEquals(0, metrics.getOperations());
+		assertEquals(0, metrics.getBytesIn());
+	}
+}